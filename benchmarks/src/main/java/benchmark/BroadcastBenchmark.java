@@ -0,0 +1,92 @@
+package benchmark;
+
+import chess.ChessGame;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import websocket.Connection;
+import websocket.ConnectionManager;
+import websocket.messages.LoadGameMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of a LOAD_GAME message to one game on a server holding many
+ * connections. Sessions are stubs that hand each message to a Blackhole and
+ * finish the write at once, so only the server's own work is measured and
+ * no queue ever fills.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+    private static final int CONNECTIONS_PER_GAME = 4;
+
+    @Param({"100", "10000"})
+    public int connections;
+
+    private ConnectionManager manager;
+    private LoadGameMessage message;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        manager = new ConnectionManager();
+        for (int i = 0; i < connections; i++) {
+            String authToken = "token-" + i;
+            manager.add(authToken, new Connection(authToken, stubSession(blackhole), i / CONNECTIONS_PER_GAME));
+        }
+        message = new LoadGameMessage(new ChessGame());
+    }
+
+    @Benchmark
+    public void broadcastToOneGame() throws IOException {
+        manager.broadcast(message, null, 0);
+    }
+
+    @TearDown
+    public void report() {
+        ConnectionManager.Metrics metrics = manager.getMetrics();
+        System.out.println(String.format("%nsent: %d, dropped: %d, max queued: %d, latency avg %.4f ms, max %.4f ms",
+                metrics.sent(), metrics.dropped(), metrics.maxQueued(), metrics.averageLatencyMillis(),
+                metrics.maxLatencyMillis()));
+    }
+
+    private static Session stubSession(Blackhole blackhole) {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (args != null) {
+                        blackhole.consume(args[0]);
+                    }
+                    if (method.getName().equals("sendString") && args.length == 2) {
+                        ((WriteCallback) args[1]).writeSuccess();
+                    }
+                    return null;
+                });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "getRemote" -> remote;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
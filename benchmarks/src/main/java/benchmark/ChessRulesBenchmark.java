@@ -0,0 +1,91 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Evaluation;
+import chess.Fen;
+import chess.PieceMovesCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation and game status checks, as run for every move the server
+ * handles, and position evaluation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessRulesBenchmark {
+    private static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+    private static final String CHECKMATE = "6k1/5ppp/8/8/8/8/5PPP/3r2K1 w - - 0 1";
+
+    private ChessGame middlegame;
+    private ChessBoard board;
+    private ChessPosition queen;
+    private ChessGame checkmate;
+
+    @Setup
+    public void setup() {
+        middlegame = Fen.toGame(MIDDLEGAME);
+        board = middlegame.getBoard();
+        queen = new ChessPosition(2, 5);
+        checkmate = Fen.toGame(CHECKMATE);
+    }
+
+    /**
+     * Re-adding a piece where it already stands changes nothing but the
+     * board's version, which makes ChessGame recompute instead of answering
+     * from its status cache.
+     */
+    private static void touch(ChessGame game, ChessPosition position) {
+        game.getBoard().addPiece(position, game.getBoard().getPiece(position));
+    }
+
+    @Benchmark
+    public Collection<ChessMove> calculateMoves() {
+        return PieceMovesCalculator.calculateMoves(board, queen);
+    }
+
+    @Benchmark
+    public Collection<ChessMove> validMoves() {
+        touch(middlegame, queen);
+        return middlegame.validMoves(queen);
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        touch(checkmate, new ChessPosition(1, 7));
+        return checkmate.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return Evaluation.evaluate(middlegame);
+    }
+
+    @Benchmark
+    public int evaluateFromScratch() {
+        return Evaluation.evaluateFromScratch(board.getBitboards(), middlegame.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmateCached() {
+        return checkmate.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+}
@@ -0,0 +1,45 @@
+package benchmark;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BCrypt calls UserService makes to register and log in a user.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private String hashed;
+
+    @Setup
+    public void setup() {
+        hashed = BCrypt.hashpw(PASSWORD, BCrypt.gensalt());
+    }
+
+    @Benchmark
+    public String register() {
+        return BCrypt.hashpw(PASSWORD, BCrypt.gensalt());
+    }
+
+    @Benchmark
+    public boolean login() {
+        return BCrypt.checkpw(PASSWORD, hashed);
+    }
+}
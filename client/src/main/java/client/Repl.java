@@ -12,7 +12,10 @@ import java.util.Scanner;
 import ui.EscapeSequences;
 import websocket.NotiHandler;
 import websocket.WSFacade;
+import websocket.commands.AnalyzeCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
+import websocket.messages.BookMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
@@ -69,6 +72,10 @@ public class Repl implements NotiHandler {
             case "redraw" -> redraw();
             case "resign" -> resign(scanner);
             case "highlight" -> highlight(tokens);
+            case "book" -> book();
+            case "hint" -> analyze(UserGameCommand.CommandType.HINT, tokens);
+            case "analyze" -> analyze(UserGameCommand.CommandType.ANALYZE, tokens);
+            case "stop" -> stopAnalysis();
             default -> out.println("Unknown command. Type 'help' for options.");
         }
     }
@@ -132,6 +139,42 @@ public class Repl implements NotiHandler {
             out.println("Error: " + e.getMessage());
         }
     }
+    private void book() {
+        try {
+            if (gameJoinedId == null) {
+                out.println("Error: You are not in a game.");
+                return;
+            }
+            wsFacade.sendCommand(new UserGameCommand(UserGameCommand.CommandType.BOOK, authToken, gameJoinedId));
+        } catch (Exception e) {
+            out.println("Error: " + e.getMessage());
+        }
+    }
+    private void analyze(UserGameCommand.CommandType type, String[] tokens) {
+        try {
+            if (gameJoinedId == null) {
+                out.println("Error: You are not in a game.");
+                return;
+            }
+            Integer millis = tokens.length > 1 ? Integer.parseInt(tokens[1]) : null;
+            wsFacade.sendCommand(new AnalyzeCommand(type, authToken, gameJoinedId, millis));
+        } catch (NumberFormatException e) {
+            out.println("Usage: " + tokens[0] + " [MILLIS] (e.g., " + tokens[0] + " 2000)");
+        } catch (Exception e) {
+            out.println("Error: " + e.getMessage());
+        }
+    }
+    private void stopAnalysis() {
+        try {
+            if (gameJoinedId == null) {
+                out.println("Error: You are not in a game.");
+                return;
+            }
+            wsFacade.sendCommand(new UserGameCommand(UserGameCommand.CommandType.STOP_ANALYSIS, authToken, gameJoinedId));
+        } catch (Exception e) {
+            out.println("Error: " + e.getMessage());
+        }
+    }
     private void redraw() {
         if (gameJoinedId == null) {
             out.println("Error: You are not in a game.");
@@ -373,6 +416,10 @@ public class Repl implements NotiHandler {
         out.println("  move <e2> <e4>   - Move a piece from one spot to another");
         out.println("  resign        - Resign from a game");
         out.println("  highlight <e2>  - Highlight legal moves a piece can make");
+        out.println("  book          - Show the opening and its book moves");
+        out.println("  hint [MILLIS] - Ask the engine for a move");
+        out.println("  analyze [MILLIS] - Watch the engine analyse the position");
+        out.println("  stop          - Stop the engine's analysis");
         out.println();
     }
     private void printPreLoginHelp() {
@@ -486,6 +533,36 @@ public class Repl implements NotiHandler {
                 out.println(EscapeSequences.SET_TEXT_COLOR_GREEN + noti.getNotification() + EscapeSequences.RESET_TEXT_COLOR);
                 out.print("[LOGGED_IN] >>> ");
             }
+            case BOOK -> {
+                BookMessage book = (BookMessage) message;
+                out.println();
+                if (book.getOpening() == null && book.getMoves().isEmpty()) {
+                    out.println("This position is out of the opening book.");
+                } else {
+                    if (book.getOpening() != null) {
+                        out.println("Opening: " + book.getOpening());
+                    }
+                    for (int i = 0; i < book.getMoves().size(); i++) {
+                        out.println("  " + book.getMoves().get(i) + " (weight " + book.getWeights().get(i) + ")");
+                    }
+                }
+                out.print("[LOGGED_IN] >>> ");
+            }
+            case ANALYSIS -> {
+                AnalysisMessage analysis = (AnalysisMessage) message;
+                out.println();
+                String score = analysis.getMateIn() != null ? "mate in " + analysis.getMateIn()
+                        : String.format("%+.2f", analysis.getScore() / 100.0);
+                String line = analysis.getPrincipalVariation().stream().map(Object::toString)
+                        .collect(java.util.stream.Collectors.joining(", "));
+                if (analysis.isComplete()) {
+                    out.println("Engine suggests " + analysis.getBestMove() + " (" + score + ", depth "
+                            + analysis.getDepth() + ")");
+                } else {
+                    out.println("depth " + analysis.getDepth() + "  " + score + "  " + line);
+                }
+                out.print("[LOGGED_IN] >>> ");
+            }
             case ERROR -> {
                 ErrorMessage error = (ErrorMessage) message;
                 out.println();
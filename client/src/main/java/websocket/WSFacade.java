@@ -2,6 +2,8 @@ package websocket;
 
 import com.google.gson.Gson;
 import websocket.commands.UserGameCommand;
+import websocket.messages.AnalysisMessage;
+import websocket.messages.BookMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
@@ -37,6 +39,8 @@ public class WSFacade extends Endpoint {
                         case LOAD_GAME -> notiHandler.notify(new Gson().fromJson(message, LoadGameMessage.class));
                         case NOTIFICATION -> notiHandler.notify(new Gson().fromJson(message, NotificationMessage.class));
                         case ERROR -> notiHandler.notify(new Gson().fromJson(message, ErrorMessage.class));
+                        case BOOK -> notiHandler.notify(new Gson().fromJson(message, BookMessage.class));
+                        case ANALYSIS -> notiHandler.notify(new Gson().fromJson(message, AnalysisMessage.class));
                     }
                 }
             });
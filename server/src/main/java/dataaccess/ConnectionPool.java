@@ -0,0 +1,492 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of database connections, so a DAO call borrows an open
+ * connection instead of paying for a new TCP connection and login each time.
+ * <p>
+ * {@link #getConnection()} hands out a wrapper whose {@code close()} returns
+ * the connection to the pool, so DAOs keep using try-with-resources exactly
+ * as before. The pool:
+ * <ul>
+ *     <li>opens connections on demand up to a maximum, and keeps at least a
+ *     minimum open</li>
+ *     <li>makes callers wait, up to a timeout, when every connection is in
+ *     use</li>
+ *     <li>checks a connection that has sat idle for a while is still alive
+ *     before handing it out</li>
+ *     <li>closes connections left idle too long, down to the minimum</li>
+ *     <li>when leak detection is on, reports connections borrowed for longer
+ *     than a threshold, with the stack that borrowed them, as likely
+ *     leaks</li>
+ * </ul>
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new physical connection
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * @param minSize            connections kept open even when idle
+     * @param maxSize            the most connections open at once
+     * @param acquireTimeout     how long a caller waits for a connection
+     * @param idleTimeout        how long a connection above the minimum may
+     *                           sit idle before it is closed
+     * @param validationInterval how long a connection may sit idle before it
+     *                           is checked on its way out
+     * @param leakThreshold      how long a connection may be borrowed before
+     *                           it is reported as a likely leak
+     * @param leakDetection      whether to look for leaks. Each borrow then
+     *                           records its stack, which costs enough to
+     *                           leave off outside of debugging.
+     */
+    public record Settings(int minSize, int maxSize, Duration acquireTimeout, Duration idleTimeout,
+                           Duration validationInterval, Duration leakThreshold, boolean leakDetection) {
+        public Settings {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("Pool sizes need 0 <= min <= max and max >= 1");
+            }
+        }
+
+        public static Settings defaults() {
+            return new Settings(2, 10, Duration.ofSeconds(5), Duration.ofMinutes(5), Duration.ofSeconds(30),
+                    Duration.ofSeconds(30), false);
+        }
+    }
+
+    /**
+     * A snapshot of the pool's state and history
+     *
+     * @param active        connections borrowed right now
+     * @param idle          connections open and waiting to be borrowed
+     * @param waiters       callers waiting for a connection right now
+     * @param acquired      connections handed out since the pool started
+     * @param created       physical connections opened
+     * @param timeouts      callers that gave up waiting
+     * @param leaks         borrows reported as likely leaks
+     * @param totalWaitNanos time callers spent waiting, all together
+     * @param maxWaitNanos  the longest any caller waited
+     */
+    public record Metrics(int active, int idle, int waiters, long acquired, long created, long timeouts,
+                          long leaks, long totalWaitNanos, long maxWaitNanos) {
+        public double averageWaitMillis() {
+            return acquired == 0 ? 0 : totalWaitNanos / 1e6 / acquired;
+        }
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long MIN_HOUSEKEEPING_MILLIS = 1000;
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    // Most recently returned last, so the warmest connections are reused
+    // and the coldest age out
+    private final Deque<Pooled> idle = new ArrayDeque<>();
+    private final Set<Pooled> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private int open;
+    private int waiters;
+    private long acquired;
+    private long created;
+    private long timeouts;
+    private long leaks;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long shortest = settings.leakDetection()
+                ? Math.min(settings.idleTimeout().toMillis(), settings.leakThreshold().toMillis())
+                : settings.idleTimeout().toMillis();
+        long period = Math.max(MIN_HOUSEKEEPING_MILLIS, shortest / 2);
+        housekeeper.scheduleAtFixedRate(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting if every one is in use. Close it to give
+     * it back.
+     *
+     * @throws DataAccessException if none comes free within the acquire
+     *                             timeout, or a new one cannot be opened
+     */
+    public Connection getConnection() throws DataAccessException {
+        long start = System.nanoTime();
+        long deadline = start + settings.acquireTimeout().toNanos();
+        while (true) {
+            Pooled candidate = null;
+            boolean create = false;
+            lock.lock();
+            try {
+                while (!closed && idle.isEmpty() && open >= settings.maxSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new DataAccessException("Timed out waiting for a database connection");
+                    }
+                    waiters++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DataAccessException("Interrupted waiting for a database connection", e);
+                    } finally {
+                        waiters--;
+                    }
+                }
+                if (closed) {
+                    throw new DataAccessException("The connection pool is closed");
+                }
+                if (!idle.isEmpty()) {
+                    candidate = idle.pollLast();
+                } else {
+                    // Reserve the slot now so other callers count it while it opens
+                    open++;
+                    create = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                candidate = open(start);
+            } else if (!isUsable(candidate)) {
+                discard(candidate);
+                continue;
+            }
+            return lend(candidate, start);
+        }
+    }
+
+    private Pooled open(long start) throws DataAccessException {
+        try {
+            Connection physical = factory.create();
+            lock.lock();
+            try {
+                created++;
+            } finally {
+                lock.unlock();
+            }
+            return new Pooled(physical);
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                open--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw new DataAccessException("failed to get connection", e);
+        }
+    }
+
+    /**
+     * A connection that sat idle long enough for the server to have dropped
+     * it is checked before use
+     */
+    private boolean isUsable(Pooled pooled) {
+        if (System.nanoTime() - pooled.returnedAt < settings.validationInterval().toNanos()) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lend(Pooled pooled, long start) {
+        long waited = System.nanoTime() - start;
+        lock.lock();
+        try {
+            acquired++;
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+        } finally {
+            lock.unlock();
+        }
+        pooled.borrowedAt = System.nanoTime();
+        if (settings.leakDetection()) {
+            pooled.borrower = new Throwable("Connection borrowed here");
+            pooled.leakReported = false;
+        }
+        borrowed.add(pooled);
+        return pooled.lend();
+    }
+
+    /**
+     * Takes a connection back from a borrower, resetting what a borrower may
+     * have changed, or closes it if it is broken or the pool is closed
+     */
+    private void giveBack(Pooled pooled) {
+        borrowed.remove(pooled);
+        boolean healthy = !pooled.broken;
+        try {
+            if (healthy && !pooled.physical.isClosed() && !pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            healthy &= !pooled.physical.isClosed();
+        } catch (SQLException e) {
+            healthy = false;
+        }
+        if (!healthy) {
+            discard(pooled);
+            return;
+        }
+        lock.lock();
+        try {
+            if (!closed) {
+                pooled.returnedAt = System.nanoTime();
+                idle.addLast(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pooled);
+    }
+
+    private void discard(Pooled pooled) {
+        closeQuietly(pooled.physical);
+        lock.lock();
+        try {
+            open--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes connections idle past the idle timeout down to the minimum,
+     * opens connections up to the minimum, and reports likely leaks. Runs
+     * periodically on its own thread.
+     */
+    void housekeep() {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Iterator<Pooled> oldestFirst = idle.iterator();
+            while (open > settings.minSize() && oldestFirst.hasNext()) {
+                Pooled pooled = oldestFirst.next();
+                if (now - pooled.returnedAt < settings.idleTimeout().toNanos()) {
+                    break;
+                }
+                oldestFirst.remove();
+                open--;
+                closeQuietly(pooled.physical);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (settings.leakDetection()) {
+            reportLeaks(now);
+        }
+        fillToMinimum();
+    }
+
+    private void reportLeaks(long now) {
+        for (Pooled pooled : borrowed) {
+            if (pooled.borrower == null || now - pooled.borrowedAt <= settings.leakThreshold().toNanos()) {
+                continue;
+            }
+            lock.lock();
+            try {
+                if (pooled.leakReported) {
+                    continue;
+                }
+                pooled.leakReported = true;
+                leaks++;
+            } finally {
+                lock.unlock();
+            }
+            StringBuilder report = new StringBuilder(String.format(
+                    "Possible connection leak: borrowed %d ms ago and not returned, borrowed at",
+                    (now - pooled.borrowedAt) / 1_000_000));
+            for (StackTraceElement frame : pooled.borrower.getStackTrace()) {
+                report.append(System.lineSeparator()).append("    at ").append(frame);
+            }
+            System.out.println(report);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || open >= settings.minSize()) {
+                    return;
+                }
+                open++;
+            } finally {
+                lock.unlock();
+            }
+            Pooled pooled;
+            try {
+                pooled = open(System.nanoTime());
+            } catch (DataAccessException e) {
+                // The database is unreachable; borrowers will see the error
+                return;
+            }
+            lock.lock();
+            try {
+                pooled.returnedAt = System.nanoTime();
+                idle.addFirst(pooled);
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public Metrics getMetrics() {
+        lock.lock();
+        try {
+            return new Metrics(borrowed.size(), idle.size(), waiters, acquired, created, timeouts, leaks,
+                    totalWaitNanos, maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Closes every idle connection and stops handing out more. Borrowed
+     * connections are closed as they come back.
+     */
+    @Override
+    public void close() {
+        housekeeper.shutdownNow();
+        lock.lock();
+        try {
+            closed = true;
+            for (Pooled pooled : idle) {
+                open--;
+                closeQuietly(pooled.physical);
+            }
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already broken, and being thrown away either way
+        }
+    }
+
+    /**
+     * A physical connection and its bookkeeping. Each borrow gets a fresh
+     * proxy, so a borrower that closes its connection and then keeps using
+     * it cannot reach the next borrower's connection.
+     */
+    private final class Pooled {
+        private final Connection physical;
+        private volatile long borrowedAt;
+        private volatile long returnedAt = System.nanoTime();
+        private volatile Throwable borrower;
+        private volatile boolean leakReported;
+        private volatile boolean broken;
+
+        Pooled(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection lend() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private final Pooled pooled;
+        private boolean returned;
+
+        Lease(Pooled pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    if (returned) {
+                        return true;
+                    }
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + pooled.physical;
+                }
+                default -> {
+                }
+            }
+            if (returned) {
+                throw new SQLException("Connection has been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQL state class 08 is a connection exception: the link is gone
+                if (cause instanceof SQLException sql && sql.getSQLState() != null
+                        && sql.getSQLState().startsWith("08")) {
+                    pooled.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+}
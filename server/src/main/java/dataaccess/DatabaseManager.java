@@ -1,6 +1,9 @@
 package dataaccess;
 
+import dataaccess.game.CachedGameDAO;
+
 import java.sql.*;
+import java.time.Duration;
 import java.util.Properties;
 
 public class DatabaseManager {
@@ -8,6 +11,9 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool.Settings poolSettings;
+    private static CachedGameDAO.Settings cacheSettings;
+    private static volatile ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,10 +36,11 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection to the database from a pool, with the catalog set
+     * based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when
+     * you are done with it, which returns it to the pool. The easiest way to do
+     * that is with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -42,14 +49,63 @@ public class DatabaseManager {
      * </code>
      */
     static public Connection getConnection() throws DataAccessException {
+        return getPool().getConnection();
+    }
+
+    /**
+     * @return how busy the connection pool is and has been
+     */
+    static public ConnectionPool.Metrics getPoolMetrics() {
+        return getPool().getMetrics();
+    }
+
+    /**
+     * @return how the server's game cache writes to the database, from the
+     * db.cache properties in db.properties
+     */
+    static public CachedGameDAO.Settings getCacheSettings() {
+        return cacheSettings;
+    }
+
+    /**
+     * Closes the connection pool and every connection it holds. A later
+     * getConnection opens a new pool, so a server can be stopped and started
+     * again in the same process.
+     */
+    static public void shutdown() {
+        ConnectionPool current;
+        synchronized (DatabaseManager.class) {
+            current = pool;
+            pool = null;
+        }
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseManager.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(DatabaseManager::openConnection, poolSettings);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
         try {
-            //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
             conn.setCatalog(databaseName);
-            return conn;
         } catch (SQLException ex) {
-            throw new DataAccessException("failed to get connection", ex);
+            conn.close();
+            throw ex;
         }
+        return conn;
     }
 
     private static void loadPropertiesFromResources() {
@@ -72,6 +128,33 @@ public class DatabaseManager {
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        // Without rewriteBatchedStatements the driver sends a batch as one
+        // statement per row, so batched game writes would gain nothing
+        connectionUrl = String.format("jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, port);
+
+        // The pool settings are optional, and default when left out
+        var defaults = ConnectionPool.Settings.defaults();
+        poolSettings = new ConnectionPool.Settings(
+                Integer.parseInt(props.getProperty("db.pool.min", String.valueOf(defaults.minSize()))),
+                Integer.parseInt(props.getProperty("db.pool.max", String.valueOf(defaults.maxSize()))),
+                millis(props, "db.pool.acquireTimeoutMillis", defaults.acquireTimeout()),
+                millis(props, "db.pool.idleTimeoutMillis", defaults.idleTimeout()),
+                millis(props, "db.pool.validationIntervalMillis", defaults.validationInterval()),
+                millis(props, "db.pool.leakThresholdMillis", defaults.leakThreshold()),
+                Boolean.parseBoolean(props.getProperty("db.pool.leakDetection",
+                        String.valueOf(defaults.leakDetection()))));
+
+        // So are the game cache settings
+        var cacheDefaults = CachedGameDAO.Settings.defaults();
+        cacheSettings = new CachedGameDAO.Settings(
+                millis(props, "db.cache.flushIntervalMillis", cacheDefaults.flushInterval()),
+                CachedGameDAO.Durability.valueOf(props.getProperty("db.cache.durability",
+                        cacheDefaults.durability().name()).trim().toUpperCase()),
+                millis(props, "db.cache.idleTimeoutMillis", cacheDefaults.idleTimeout()));
+    }
+
+    private static Duration millis(Properties props, String key, Duration fallback) {
+        var value = props.getProperty(key);
+        return value == null ? fallback : Duration.ofMillis(Long.parseLong(value));
     }
 }
@@ -0,0 +1,279 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import dataaccess.DataAccessException;
+import model.GameData;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps games in memory in front of another GameDAO, so a game being played
+ * is not read back and parsed from the database on every command.
+ * <p>
+ * Reads are served from memory once a game has been read or written. Each
+ * caller gets its own copy, since callers play moves on the games they are
+ * given. In {@link Durability#WRITE_BEHIND} mode an update only changes the
+ * copy in memory, and changed games are written to the backing DAO together
+ * every flush interval. Games nobody has touched for the idle timeout are
+ * dropped from memory once they are written.
+ */
+public class CachedGameDAO implements GameDAO, AutoCloseable {
+
+    /**
+     * When an update reaches the backing DAO
+     */
+    public enum Durability {
+        /** Before updateGame returns */
+        WRITE_THROUGH,
+        /** With the next flush. An update can be lost if the server dies first. */
+        WRITE_BEHIND
+    }
+
+    /**
+     * @param flushInterval how often changed games are written, and idle ones
+     *                      dropped
+     * @param durability    when an update reaches the backing DAO
+     * @param idleTimeout   how long a game may go untouched before it is
+     *                      dropped from memory
+     */
+    public record Settings(Duration flushInterval, Durability durability, Duration idleTimeout) {
+        public static Settings defaults() {
+            return new Settings(Duration.ofSeconds(1), Durability.WRITE_BEHIND, Duration.ofMinutes(10));
+        }
+    }
+
+    private final GameDAO backing;
+    private final Settings settings;
+    private final ConcurrentHashMap<Integer, Entry> games = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    // Keeps flushes from overlapping each other or a clear
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    public CachedGameDAO(GameDAO backing, Settings settings) {
+        this.backing = backing;
+        this.settings = settings;
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-cache-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, settings.flushInterval().toMillis());
+        flusher.scheduleWithFixedDelay(this::flushAndEvict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public CachedGameDAO(GameDAO backing) {
+        this(backing, Settings.defaults());
+    }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        return backing.createGame(gameName);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        Entry entry = games.computeIfPresent(gameID, (id, cached) -> cached.touch());
+        if (entry == null) {
+            GameData loaded = backing.getGame(gameID);
+            if (loaded == null) {
+                return null;
+            }
+            // Another caller may have loaded or updated it meanwhile
+            entry = games.computeIfAbsent(gameID, id -> new Entry(copy(loaded)));
+        }
+        return copy(entry.data);
+    }
+
+    /**
+     * Lists the games in the backing DAO, with the ones in memory in place of
+     * their possibly older stored versions
+     */
+    @Override
+    public Collection<GameData> listGames() throws DataAccessException {
+        Collection<GameData> stored = backing.listGames();
+        List<GameData> listed = new ArrayList<>(stored.size());
+        for (GameData game : stored) {
+            Entry entry = games.get(game.gameID());
+            listed.add(entry == null ? game : copy(entry.data));
+        }
+        return listed;
+    }
+
+    @Override
+    public void updateGame(int gameID, GameData game) throws DataAccessException {
+        GameData stored = copy(game);
+        if (settings.durability() == Durability.WRITE_BEHIND) {
+            Entry entry = games.computeIfPresent(gameID, (id, cached) -> cached.update(stored));
+            if (entry != null) {
+                dirty.add(gameID);
+                return;
+            }
+        }
+        // Writing a game not in memory goes through, so the backing DAO
+        // still rejects games that do not exist
+        backing.updateGame(gameID, stored);
+        games.compute(gameID, (id, cached) -> cached == null ? new Entry(stored) : cached.saved(stored));
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> updates) throws DataAccessException {
+        for (GameData game : updates) {
+            updateGame(game.gameID(), game);
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        synchronized (flushLock) {
+            games.clear();
+            dirty.clear();
+            backing.clear();
+        }
+    }
+
+    /**
+     * Writes every changed game to the backing DAO in one batch. Games that
+     * fail to write stay changed, to be written by the next flush.
+     */
+    public void flush() throws DataAccessException {
+        synchronized (flushLock) {
+            List<GameData> batch = new ArrayList<>();
+            List<Integer> ids = new ArrayList<>();
+            List<Long> versions = new ArrayList<>();
+            for (Integer gameID : dirty) {
+                dirty.remove(gameID);
+                Entry entry = games.get(gameID);
+                if (entry == null) {
+                    continue;
+                }
+                // An entry's data is replaced on update, never changed in place
+                synchronized (entry) {
+                    batch.add(entry.data);
+                    versions.add(entry.version);
+                }
+                ids.add(gameID);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                backing.updateGames(batch);
+            } catch (DataAccessException | RuntimeException e) {
+                dirty.addAll(ids);
+                throw e;
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                long version = versions.get(i);
+                games.computeIfPresent(ids.get(i), (id, entry) -> entry.flushed(version));
+            }
+        }
+    }
+
+    /**
+     * Drops games that have been written and left untouched for the idle
+     * timeout
+     */
+    void evictIdle() {
+        long cutoff = System.nanoTime() - settings.idleTimeout().toNanos();
+        for (Integer gameID : games.keySet()) {
+            games.computeIfPresent(gameID,
+                    (id, entry) -> entry.lastAccess < cutoff && entry.flushedVersion == entry.version ? null : entry);
+        }
+    }
+
+    private void flushAndEvict() {
+        try {
+            flush();
+        } catch (DataAccessException | RuntimeException e) {
+            System.out.println("Failed to write cached games, will retry with the next flush: " + e.getMessage());
+        }
+        evictIdle();
+    }
+
+    /**
+     * @return the number of games in memory
+     */
+    public int getCached() {
+        return games.size();
+    }
+
+    /**
+     * @return the number of games changed since they were last written
+     */
+    public int getPending() {
+        return dirty.size();
+    }
+
+    /**
+     * Stops the periodic flush and writes what is left
+     */
+    @Override
+    public void close() throws DataAccessException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private static GameData copy(GameData game) {
+        ChessGame chessGame = game.game() == null ? null : new ChessGame(game.game());
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame);
+    }
+
+    /**
+     * A game in memory. Only changed inside the map's compute methods, which
+     * lock the entry's key.
+     */
+    private static final class Entry {
+        private volatile GameData data;
+        private volatile long version;
+        private volatile long flushedVersion;
+        private volatile long lastAccess = System.nanoTime();
+
+        Entry(GameData data) {
+            this.data = data;
+        }
+
+        Entry touch() {
+            lastAccess = System.nanoTime();
+            return this;
+        }
+
+        Entry update(GameData updated) {
+            synchronized (this) {
+                data = updated;
+                version++;
+            }
+            return touch();
+        }
+
+        /**
+         * Takes a game that was written straight to the backing DAO
+         */
+        Entry saved(GameData updated) {
+            synchronized (this) {
+                data = updated;
+                version++;
+                flushedVersion = version;
+            }
+            return touch();
+        }
+
+        Entry flushed(long written) {
+            flushedVersion = Math.max(flushedVersion, written);
+            return this;
+        }
+    }
+}
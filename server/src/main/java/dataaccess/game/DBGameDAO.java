@@ -111,6 +111,41 @@ public class DBGameDAO implements GameDAO {
         }
     }
 
+    /**
+     * Writes every game in one batch and one transaction, so a flush of many
+     * games costs one round trip instead of one per game
+     */
+    @Override
+    public void updateGames(Collection<GameData> games) throws DataAccessException {
+        if (games.isEmpty()) {
+            return;
+        }
+        Gson gson = new Gson();
+        var gameQuery = "UPDATE games SET whiteUsername = ?, blackUsername = ?, gameName = ?, chessGame = ? WHERE gameID = ?";
+        try (Connection connection = DatabaseManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(gameQuery)) {
+                for (GameData game : games) {
+                    statement.setString(1, game.whiteUsername());
+                    statement.setString(2, game.blackUsername());
+                    statement.setString(3, game.gameName());
+                    statement.setString(4, gson.toJson(game.game()));
+                    statement.setInt(5, game.gameID());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException | DataAccessException e) {
+            throw new DataAccessException("Failed to update games: " + e.getMessage());
+        }
+    }
+
     @Override
     public void clear() throws DataAccessException {
         var gameQuery = "DELETE FROM games";
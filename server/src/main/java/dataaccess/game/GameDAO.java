@@ -8,5 +8,16 @@ public interface GameDAO {
     GameData getGame(int gameID) throws DataAccessException;
     Collection<GameData> listGames() throws DataAccessException;
     void updateGame(int gameID, GameData game) throws DataAccessException;
+
+    /**
+     * Saves several games at once, each under its own ID. Stores that can
+     * write a batch together should override this.
+     */
+    default void updateGames(Collection<GameData> games) throws DataAccessException {
+        for (GameData game : games) {
+            updateGame(game.gameID(), game);
+        }
+    }
+
     void clear() throws DataAccessException;
 }
\ No newline at end of file
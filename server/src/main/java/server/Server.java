@@ -3,8 +3,8 @@ import com.google.gson.Gson;
 import dataaccess.*;
 import dataaccess.auth.AuthDAO;
 import dataaccess.auth.DBAuthDAO;
+import dataaccess.game.CachedGameDAO;
 import dataaccess.game.DBGameDAO;
-import dataaccess.game.GameDAO;
 import dataaccess.user.DBUserDAO;
 import dataaccess.user.UserDAO;
 import io.javalin.*;
@@ -22,6 +22,7 @@ import java.util.Collection;
 public class Server {
     private final Javalin javalin;
     private final WebSocketHandler webSocketHandler;
+    private final CachedGameDAO gameDAO;
     public Server() {
         javalin = Javalin.create(config -> {
             config.staticFiles.add("web");
@@ -42,7 +43,7 @@ public class Server {
         DBInitialization.initialize();
         AuthDAO authDAO = new DBAuthDAO();
         UserDAO userDAO = new DBUserDAO();
-        GameDAO gameDAO = new DBGameDAO();
+        gameDAO = new CachedGameDAO(new DBGameDAO(), DatabaseManager.getCacheSettings());
         webSocketHandler = new WebSocketHandler(userDAO, authDAO, gameDAO);
         ResetService resetService = new ResetService(userDAO, authDAO, gameDAO);
         UserService userService = new UserService(userDAO, authDAO, gameDAO);
@@ -127,6 +128,13 @@ public class Server {
     }
     public void stop() {
         javalin.stop();
+        webSocketHandler.close();
+        try {
+            gameDAO.close();
+        } catch (DataAccessException e) {
+            System.out.println("Failed to save games on shutdown: " + e.getMessage());
+        }
+        DatabaseManager.shutdown();
     }
     public static void main(String[] args) {
         Server server = new Server();
@@ -1,17 +1,249 @@
 package websocket;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.messages.ServerMessage.ServerMessageType;
+
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 
+/**
+ * A client's WebSocket, with its own queue of messages waiting to go out.
+ * <p>
+ * {@link #send} only queues a message; the queue is written one message at a
+ * time with Jetty's non-blocking send, so a slow client never holds up the
+ * thread broadcasting to the rest of its game. The queue is bounded, and
+ * what happens when it fills is set by its {@link Overflow} policy.
+ */
 public class Connection {
-    public String authToken;
-    public Session session;
-    public Integer gameId;
+
+    /**
+     * What to do with a message that arrives when the queue is full
+     */
+    public enum Overflow {
+        /** Drop the oldest waiting message to make room */
+        DROP_OLDEST,
+        /**
+         * Replace waiting board updates with the newest, since each carries
+         * the whole game, and drop the oldest message if that is not enough
+         */
+        COALESCE_LOAD_GAME,
+        /** Close the connection, since the client cannot keep up */
+        DISCONNECT
+    }
+
+    /**
+     * A snapshot of a connection's outgoing messages
+     *
+     * @param queued          messages waiting to be written, not counting
+     *                        the one being written
+     * @param maxQueued       the most ever waiting at once, which is never
+     *                        more than the capacity
+     * @param sent            messages written
+     * @param dropped         messages dropped or replaced to make room
+     * @param totalLatencyNanos time from queueing to written, over every sent
+     *                        message
+     * @param maxLatencyNanos the longest any message took to be written
+     */
+    public record Metrics(int queued, int maxQueued, long sent, long dropped, long totalLatencyNanos,
+                          long maxLatencyNanos) {
+    }
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    public final String authToken;
+    public final Session session;
+    public final Integer gameId;
+    private final int capacity;
+    private final Overflow overflow;
+    // Guarded by this, and never held while writing
+    private final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+    private boolean writing;
+    private boolean closed;
+    private int maxQueued;
+    private long sent;
+    private long dropped;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
     public Connection(String authToken, Session session, Integer gameId) {
+        this(authToken, session, gameId, DEFAULT_CAPACITY, Overflow.COALESCE_LOAD_GAME);
+    }
+
+    /**
+     * @param capacity the most messages waiting at once behind the one
+     *                 being written
+     * @param overflow what to do when a message arrives with the queue full
+     */
+    public Connection(String authToken, Session session, Integer gameId, int capacity, Overflow overflow) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The queue needs room for a message");
+        }
         this.session = session;
         this.authToken = authToken;
         this.gameId = gameId;
+        this.capacity = capacity;
+        this.overflow = overflow;
+    }
+
+    public void send(String msg) throws IOException {
+        send(msg, null);
+    }
+
+    /**
+     * Queues a message to be written as soon as the ones before it are
+     *
+     * @param type the kind of message, so board updates can be coalesced, or
+     *             null if it should never be
+     * @throws IOException if the connection has failed or been closed, so
+     *                     the caller can stop sending to it
+     */
+    public void send(String msg, ServerMessageType type) throws IOException {
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Connection is closed");
+            }
+            if (waiting() >= capacity) {
+                switch (overflow) {
+                    case DISCONNECT -> disconnect = true;
+                    case COALESCE_LOAD_GAME -> {
+                        if (type != ServerMessageType.LOAD_GAME || !dropWaiting(ServerMessageType.LOAD_GAME)) {
+                            dropOldest();
+                        }
+                    }
+                    case DROP_OLDEST -> dropOldest();
+                }
+            }
+            if (disconnect) {
+                closed = true;
+                queue.clear();
+            } else {
+                queue.addLast(new Outgoing(msg, type, System.nanoTime()));
+                maxQueued = Math.max(maxQueued, waiting());
+            }
+        }
+        if (disconnect) {
+            session.close(StatusCode.POLICY_VIOLATION, "Too many messages waiting");
+            throw new IOException("Connection fell too far behind");
+        }
+        writeNext();
+    }
+
+    /**
+     * Drops every waiting message of a type, other than one being written
+     *
+     * @return whether any were dropped
+     */
+    private boolean dropWaiting(ServerMessageType type) {
+        boolean found = false;
+        Iterator<Outgoing> waiting = queue.iterator();
+        if (writing && waiting.hasNext()) {
+            waiting.next();
+        }
+        while (waiting.hasNext()) {
+            if (waiting.next().type == type) {
+                waiting.remove();
+                dropped++;
+                found = true;
+            }
+        }
+        return found;
     }
-    public synchronized void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+
+    /**
+     * Drops the oldest message not yet being written
+     */
+    private void dropOldest() {
+        if (writing) {
+            Outgoing current = queue.pollFirst();
+            if (queue.pollFirst() != null) {
+                dropped++;
+            }
+            queue.addFirst(current);
+        } else if (queue.pollFirst() != null) {
+            dropped++;
+        }
+    }
+
+    /**
+     * @return the messages in the queue other than the one being written
+     */
+    private int waiting() {
+        return writing ? queue.size() - 1 : queue.size();
+    }
+
+    /**
+     * Starts writing the head of the queue, unless a write is under way.
+     * The message stays at the head until it is written, but it no longer
+     * counts against the capacity.
+     */
+    private void writeNext() {
+        Outgoing next;
+        synchronized (this) {
+            if (writing || closed || queue.isEmpty()) {
+                return;
+            }
+            writing = true;
+            next = queue.peekFirst();
+        }
+        try {
+            session.getRemote().sendString(next.msg, new WriteCallback() {
+                @Override
+                public void writeSuccess() {
+                    written(next);
+                }
+
+                @Override
+                public void writeFailed(Throwable failure) {
+                    failed();
+                }
+            });
+        } catch (RuntimeException e) {
+            failed();
+        }
+    }
+
+    private void written(Outgoing message) {
+        synchronized (this) {
+            queue.pollFirst();
+            writing = false;
+            long latency = System.nanoTime() - message.queuedAt;
+            sent++;
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        }
+        writeNext();
+    }
+
+    /**
+     * Stops sending, dropping anything still waiting
+     *
+     * @param closeSession whether to close the client's session too, which
+     *                     another connection may still be using
+     */
+    void close(boolean closeSession) {
+        synchronized (this) {
+            closed = true;
+            writing = false;
+            queue.clear();
+        }
+        if (closeSession) {
+            session.close(StatusCode.NORMAL, "Replaced by a newer connection");
+        }
+    }
+
+    private synchronized void failed() {
+        closed = true;
+        writing = false;
+        queue.clear();
+    }
+
+    public synchronized Metrics getMetrics() {
+        return new Metrics(waiting(), maxQueued, sent, dropped, totalLatencyNanos, maxLatencyNanos);
+    }
+
+    private record Outgoing(String msg, ServerMessageType type, long queuedAt) {
     }
-}
\ No newline at end of file
+}
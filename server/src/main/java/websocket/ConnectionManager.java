@@ -5,33 +5,164 @@ import websocket.messages.ServerMessage;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The open WebSocket connections, found by auth token or by game. A
+ * broadcast only visits the game's own connections, and serializes its
+ * message once for all of them. Sending only queues the message on each
+ * connection, so a slow client does not hold up the broadcast.
+ */
 public class ConnectionManager {
-    public final ConcurrentHashMap<String, Connection> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Outgoing message totals over every open connection
+     *
+     * @param connections     open connections
+     * @param queued          messages waiting to be written, not counting
+     *                        those being written
+     * @param maxQueued       the deepest any one connection's queue is now
+     * @param sent            messages written
+     * @param dropped         messages dropped to keep queues bounded
+     * @param averageLatencyMillis the average time from queueing to written
+     * @param maxLatencyMillis the longest any message took to be written
+     */
+    public record Metrics(int connections, int queued, int maxQueued, long sent, long dropped,
+                          double averageLatencyMillis, double maxLatencyMillis) {
+    }
+
+    private final Gson gson = new Gson();
+    // A token's games are only changed inside this map's compute methods,
+    // which lock the token, so both indexes always agree on its connection
+    private final ConcurrentHashMap<String, Connection> byAuthToken = new ConcurrentHashMap<>();
+    // Only changed inside the map's compute methods, so a game's set is never
+    // dropped while a connection is being added to it
+    private final ConcurrentHashMap<Integer, Set<Connection>> byGame = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a connection, replacing any the auth token had before. A replaced
+     * connection is closed, along with its session unless the new connection
+     * shares it.
+     */
     public void add(String authToken, Connection connection) {
-        sessions.put(authToken, connection);
+        Connection[] previous = new Connection[1];
+        byAuthToken.compute(authToken, (token, current) -> {
+            if (current != null) {
+                leaveGame(current);
+                previous[0] = current;
+            }
+            joinGame(connection);
+            return connection;
+        });
+        Connection replaced = previous[0];
+        if (replaced != null && replaced != connection) {
+            replaced.close(replaced.session != connection.session);
+        }
     }
+
     public void remove(String authToken) {
-        sessions.remove(authToken);
+        byAuthToken.computeIfPresent(authToken, (token, current) -> {
+            leaveGame(current);
+            return null;
+        });
+    }
+
+    /**
+     * Removes a connection only if it is still the auth token's current one
+     */
+    private void remove(Connection connection) {
+        byAuthToken.computeIfPresent(connection.authToken, (token, current) -> {
+            if (current != connection) {
+                return current;
+            }
+            leaveGame(current);
+            return null;
+        });
+    }
+
+    private void joinGame(Connection connection) {
+        byGame.compute(connection.gameId, (gameId, connections) -> {
+            if (connections == null) {
+                connections = ConcurrentHashMap.newKeySet();
+            }
+            connections.add(connection);
+            return connections;
+        });
+    }
+
+    private void leaveGame(Connection connection) {
+        byGame.computeIfPresent(connection.gameId, (gameId, connections) -> {
+            connections.remove(connection);
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    /**
+     * @return the auth token's connection, or null if it has none
+     */
+    public Connection get(String authToken) {
+        return byAuthToken.get(authToken);
+    }
+
+    /**
+     * @return the connections to a game, which may change while it is read
+     */
+    public Set<Connection> getGameConnections(Integer gameId) {
+        Set<Connection> connections = byGame.get(gameId);
+        return connections == null ? Set.of() : connections;
+    }
+
+    public Metrics getMetrics() {
+        int connections = 0;
+        int queued = 0;
+        int maxQueued = 0;
+        long sent = 0;
+        long dropped = 0;
+        long totalLatency = 0;
+        long maxLatency = 0;
+        for (Connection connection : byAuthToken.values()) {
+            Connection.Metrics metrics = connection.getMetrics();
+            connections++;
+            queued += metrics.queued();
+            maxQueued = Math.max(maxQueued, metrics.queued());
+            sent += metrics.sent();
+            dropped += metrics.dropped();
+            totalLatency += metrics.totalLatencyNanos();
+            maxLatency = Math.max(maxLatency, metrics.maxLatencyNanos());
+        }
+        double average = sent == 0 ? 0 : totalLatency / 1e6 / sent;
+        return new Metrics(connections, queued, maxQueued, sent, dropped, average, maxLatency / 1e6);
     }
+
+    /**
+     * Sends a message to everyone in a game except the given auth token, and
+     * drops connections that have closed
+     *
+     * @param authToken who to leave out, or null to send to everyone
+     */
     public void broadcast(ServerMessage notification, String authToken, Integer gameId) throws IOException {
-        var removeList = new ArrayList<String>();
-        for (var c : sessions.values()) {
+        Set<Connection> connections = byGame.get(gameId);
+        if (connections == null) {
+            return;
+        }
+        String json = gson.toJson(notification);
+        var removeList = new ArrayList<Connection>();
+        for (var c : connections) {
             if (c.session.isOpen()) {
-                if (c.gameId.equals(gameId) && !c.authToken.equals(authToken)) {
+                if (!c.authToken.equals(authToken)) {
                     try {
-                        c.send(new Gson().toJson(notification));
+                        c.send(json, notification.getServerMessageType());
                     } catch (IOException e) {
-                        removeList.add(c.authToken);
+                        removeList.add(c);
                     }
                 }
             } else {
-                removeList.add(c.authToken);
+                removeList.add(c);
             }
         }
-        for (String token : removeList) {
-            sessions.remove(token);
+        for (Connection connection : removeList) {
+            remove(connection);
         }
     }
 }
@@ -0,0 +1,230 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.engine.Search;
+import chess.engine.SearchLimits;
+import chess.engine.SearchResult;
+import chess.engine.TranspositionTable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs engine searches for hint and analysis requests on a fixed pool of
+ * worker threads, so a search never holds up the WebSocket threads that
+ * handle every other game's messages.
+ * <p>
+ * Waiting jobs are ordered by priority and then by arrival, so a player's
+ * hint goes ahead of queued analysis. The pool takes a bounded number of
+ * jobs at once and turns the rest away instead of queueing without limit.
+ * Each requester has at most one job: a new request cancels the last one,
+ * as does {@link #cancel}, and {@link #cancelGame} cancels every job on a
+ * game whose position has changed.
+ */
+public class EngineWorkerPool implements AutoCloseable {
+
+    /**
+     * How urgent a job is. Jobs of a higher priority start first.
+     */
+    public enum Priority {
+        HINT,
+        ANALYSIS
+    }
+
+    public static final long MIN_MILLIS = 100;
+    public static final long MAX_MILLIS = 10_000;
+    // Each worker keeps one search, with a table small enough that a full
+    // pool stays light next to the rest of the server
+    private static final int TABLE_MEGABYTES = 8;
+
+    private final ThreadPoolExecutor executor;
+    private final int capacity;
+    private final AtomicInteger jobs = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap<String, Job> jobsByRequester = new ConcurrentHashMap<>();
+    private final ThreadLocal<Search> searches =
+            ThreadLocal.withInitial(() -> new Search(new TranspositionTable(TABLE_MEGABYTES)));
+
+    /**
+     * @param threads  the number of searches that run at once
+     * @param capacity the most jobs, running and waiting, the pool holds
+     */
+    public EngineWorkerPool(int threads, int capacity) {
+        if (threads < 1 || capacity < threads) {
+            throw new IllegalArgumentException("The pool needs a thread and room for a job on each");
+        }
+        this.capacity = capacity;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "engine-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Creates a pool on half the available cores, holding up to eight jobs
+     * per thread
+     */
+    public EngineWorkerPool() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                8 * Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Queues a search of a position, cancelling the requester's last job
+     *
+     * @param requester   who asked, such as an auth token
+     * @param gameID      the game the position is from
+     * @param position    the position to search. It is copied, so the game
+     *                    may change afterwards.
+     * @param millis      how long to search, kept between {@link #MIN_MILLIS}
+     *                    and {@link #MAX_MILLIS}
+     * @param iteration   called on the worker with each finished depth, or null
+     * @param done        called on the worker with the final result, unless
+     *                    the job is cancelled first
+     * @throws RejectedExecutionException if the pool is full or closed
+     */
+    public void submit(String requester, int gameID, ChessGame position, long millis, Priority priority,
+                       Consumer<SearchResult> iteration, Consumer<SearchResult> done) {
+        cancel(requester);
+        if (jobs.incrementAndGet() > capacity) {
+            jobs.decrementAndGet();
+            throw new RejectedExecutionException("The engine is busy, try again shortly");
+        }
+        long limit = Math.max(MIN_MILLIS, Math.min(MAX_MILLIS, millis));
+        Job job = new Job(requester, gameID, new ChessGame(position), limit, priority, iteration, done);
+        Job previous = jobsByRequester.put(requester, job);
+        if (previous != null) {
+            // Another request from the same requester raced this one in
+            discard(previous);
+        }
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobsByRequester.remove(requester, job);
+            jobs.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels the requester's job, if it has one. A running search stops
+     * and reports nothing more.
+     */
+    public void cancel(String requester) {
+        Job job = jobsByRequester.remove(requester);
+        if (job != null) {
+            discard(job);
+        }
+    }
+
+    /**
+     * Cancels every job on a game, for when its position changes
+     */
+    public void cancelGame(int gameID) {
+        for (Job job : jobsByRequester.values()) {
+            if (job.gameID == gameID && jobsByRequester.remove(job.requester, job)) {
+                discard(job);
+            }
+        }
+    }
+
+    /**
+     * Cancels a job, and takes it out of the queue if it has not started so
+     * it stops counting against the capacity at once
+     */
+    private void discard(Job job) {
+        job.cancel();
+        if (executor.remove(job)) {
+            jobs.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of jobs running or waiting
+     */
+    public int getJobs() {
+        return jobs.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Cancels every job and stops the workers
+     */
+    @Override
+    public void close() {
+        for (String requester : jobsByRequester.keySet()) {
+            cancel(requester);
+        }
+        executor.shutdownNow();
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        private final String requester;
+        private final int gameID;
+        private final ChessGame position;
+        private final long millis;
+        private final Priority priority;
+        private final long order = sequence.getAndIncrement();
+        private final Consumer<SearchResult> iteration;
+        private final Consumer<SearchResult> done;
+        // Also the search's stop signal. The worker's Search goes on to
+        // other jobs, so cancelling must never stop it directly.
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Job(String requester, int gameID, ChessGame position, long millis, Priority priority,
+            Consumer<SearchResult> iteration, Consumer<SearchResult> done) {
+            this.requester = requester;
+            this.gameID = gameID;
+            this.position = position;
+            this.millis = millis;
+            this.priority = priority;
+            this.iteration = iteration;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (cancelled.get()) {
+                    return;
+                }
+                SearchResult result = searches.get().search(position, SearchLimits.time(millis), cancelled,
+                        this::report);
+                if (!cancelled.get() && jobsByRequester.remove(requester, this)) {
+                    done.accept(result);
+                }
+            } finally {
+                jobs.decrementAndGet();
+            }
+        }
+
+        private void report(SearchResult result) {
+            if (!cancelled.get() && iteration != null) {
+                iteration.accept(result);
+            }
+        }
+
+        void cancel() {
+            cancelled.set(true);
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package websocket;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs each game's commands one at a time, in the order they arrived, while
+ * different games run in parallel.
+ * <p>
+ * Each game with work waiting has a mailbox, drained by one virtual thread
+ * at a time. A command can then read a game, change it and save it without
+ * another command on the same game changing it in between, and without
+ * holding a lock while it waits on the database. A mailbox is dropped as
+ * soon as it empties, so idle games cost nothing.
+ */
+public class GameMailboxes implements AutoCloseable {
+
+    private final ExecutorService executor;
+    // Only touched inside the map's compute methods, which lock the game's key
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    public GameMailboxes() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    GameMailboxes(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a task behind the game's earlier tasks
+     *
+     * @throws RejectedExecutionException if the mailboxes are closed. The task
+     *                                    is not run, but tasks already queued
+     *                                    for the game still are.
+     */
+    public void submit(int gameID, Runnable task) {
+        boolean[] start = new boolean[1];
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+            }
+            mailbox.tasks.add(task);
+            if (!mailbox.draining) {
+                mailbox.draining = true;
+                start[0] = true;
+            }
+            return mailbox;
+        });
+        if (start[0]) {
+            try {
+                executor.execute(() -> drain(gameID));
+            } catch (RejectedExecutionException e) {
+                // Tasks other threads queued behind this one were accepted
+                // on the strength of its drain, so they still have to run
+                boolean[] accepted = new boolean[1];
+                mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+                    mailbox.tasks.remove(task);
+                    accepted[0] = !mailbox.tasks.isEmpty();
+                    return accepted[0] ? mailbox : null;
+                });
+                if (accepted[0]) {
+                    drain(gameID);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void drain(int gameID) {
+        Runnable task;
+        while ((task = next(gameID)) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // One failed command must not hold up the rest of the game's
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Takes the game's next task, or drops its mailbox if there is none
+     */
+    private Runnable next(int gameID) {
+        Runnable[] next = new Runnable[1];
+        mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+            next[0] = mailbox.tasks.poll();
+            return next[0] == null ? null : mailbox;
+        });
+        return next[0];
+    }
+
+    /**
+     * @return the number of games with tasks running or waiting
+     */
+    public int getActive() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Stops taking tasks and waits briefly for the queued ones to finish
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Mailbox {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean draining;
+    }
+}
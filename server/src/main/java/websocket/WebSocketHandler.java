@@ -10,20 +10,40 @@ import model.AuthData;
 import model.GameData;
 import websocket.commands.UserGameCommand;
 import websocket.commands.MakeMoveCommand;
+import websocket.commands.AnalyzeCommand;
+import websocket.messages.AnalysisMessage;
+import websocket.messages.BookMessage;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
 import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
 import chess.ChessGame;
+import chess.GameStatus;
 import chess.InvalidMoveException;
 import chess.ChessMove;
+import chess.OpeningBook;
+import chess.PackedMove;
+import chess.PieceMovesCalculator;
+import chess.engine.SearchResult;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
 
 
 public class WebSocketHandler {
+    // Moves that lose at least this much material by static exchange, in
+    // centipawns, are flagged as blunders in move notifications
+    private static final int BLUNDER_THRESHOLD = 200;
+    // How long a hint or an analysis searches when the request gives no time
+    private static final long DEFAULT_HINT_MILLIS = 1000;
+    private static final long DEFAULT_ANALYSIS_MILLIS = 3000;
     private final ConnectionManager sessions = new ConnectionManager();
     private final Gson gson = new Gson();
+    private final EngineWorkerPool engine = new EngineWorkerPool();
+    private final GameMailboxes mailboxes = new GameMailboxes();
     UserDAO userDAO;
     AuthDAO authDAO;
     GameDAO gameDAO;
@@ -34,11 +54,33 @@ public class WebSocketHandler {
         this.gameDAO = gameDAO;
     }
 
+    /**
+     * Reads a command and queues it on its game's mailbox, so commands on
+     * one game run in order while other games run alongside
+     */
     public void handleMessage(WsMessageContext cx) {
-        UserGameCommand command = null;
+        String message = cx.message();
+        UserGameCommand command;
         try {
-            String message = cx.message();
             command = gson.fromJson(message, UserGameCommand.class);
+            Objects.requireNonNull(command.getCommandType(), "Missing command type");
+        } catch (RuntimeException e) {
+            sendError(null, e, cx);
+            return;
+        }
+        if (command.getGameID() == null) {
+            handleCommand(command, message, cx);
+            return;
+        }
+        try {
+            mailboxes.submit(command.getGameID(), () -> handleCommand(command, message, cx));
+        } catch (RejectedExecutionException e) {
+            sendError(command, new IllegalStateException("Server is shutting down"), cx);
+        }
+    }
+
+    private void handleCommand(UserGameCommand command, String message, WsMessageContext cx) {
+        try {
             switch (command.getCommandType()) {
                 case CONNECT -> connect(command.getAuthToken(), command.getGameID(), cx);
                 case MAKE_MOVE -> {
@@ -51,18 +93,38 @@ public class WebSocketHandler {
                 case RESIGN -> {
                     resign(command.getAuthToken(), command.getGameID());
                 }
-            }
-        } catch (Exception e) {
-            ErrorMessage errorMessage = new ErrorMessage("Error: " + e.getMessage());
-            try {
-                if (command != null && sessions.sessions.containsKey(command.getAuthToken())) {
-                    sessions.sessions.get(command.getAuthToken()).send(gson.toJson(errorMessage));
-                } else {
-                    cx.send(gson.toJson(errorMessage));
+                case BOOK -> book(command.getAuthToken(), command.getGameID(), cx);
+                case ANALYZE, HINT -> {
+                    AnalyzeCommand analyzeCommand = gson.fromJson(message, AnalyzeCommand.class);
+                    analyze(analyzeCommand);
                 }
-            } catch (IOException ex) {
-                ex.printStackTrace();
+                case STOP_ANALYSIS -> engine.cancel(command.getAuthToken());
             }
+        } catch (Exception e) {
+            sendError(command, e, cx);
+        }
+    }
+
+    private void sendError(UserGameCommand command, Exception e, WsMessageContext cx) {
+        ErrorMessage errorMessage = new ErrorMessage("Error: " + e.getMessage());
+        try {
+            reply(command != null ? command.getAuthToken() : null, errorMessage, cx);
+        } catch (IOException ex) {
+            System.out.println("Could not send error: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Sends a message to the player who sent a command. A registered player's
+     * message joins their connection's queue behind anything already waiting;
+     * the session is only written directly before they have connected.
+     */
+    private void reply(String authToken, ServerMessage message, WsMessageContext cx) throws IOException {
+        Connection connection = authToken != null ? sessions.get(authToken) : null;
+        if (connection != null) {
+            connection.send(gson.toJson(message), message.getServerMessageType());
+        } else {
+            cx.send(gson.toJson(message));
         }
     }
 
@@ -77,10 +139,8 @@ public class WebSocketHandler {
         }
         String username = authData.username();
         ChessGame currGame = gameData.game();
-        if (currGame.isGameOver() || currGame.isInCheckmate(currGame.getTeamTurn()) || currGame.isInStalemate(currGame.getTeamTurn())) {
-            throw new DataAccessException("Error: Game is over");
-        }
-        if (currGame.isInCheckmate(currGame.getTeamTurn()) || currGame.isInStalemate(currGame.getTeamTurn())) {
+        GameStatus status = currGame.getStatus();
+        if (currGame.isGameOver() || status.isInCheckmate() || status.isInStalemate()) {
             throw new DataAccessException("Error: Game is over");
         }
         ChessGame.TeamColor currColor = currGame.getBoard().getPiece(move.getStartPosition()).getTeamColor();
@@ -95,6 +155,8 @@ public class WebSocketHandler {
         } else {
             throw new DataAccessException("Error: You can't move this piece");
         }
+        // Judged before the move is played, since it needs the captures the move invites
+        int exchange = currGame.staticExchange(move);
         try {
             currGame.makeMove(move);
         } catch (InvalidMoveException e) {
@@ -102,6 +164,7 @@ public class WebSocketHandler {
         }
         GameData gameAfterMove = new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(), gameData.gameName(), currGame);
         gameDAO.updateGame(gameAfterMove.gameID(), gameAfterMove);
+        engine.cancelGame(gameID);
         LoadGameMessage loadGame = new LoadGameMessage(currGame);
         try {
             sessions.broadcast(loadGame, null, gameID);
@@ -110,20 +173,22 @@ public class WebSocketHandler {
         }
         ChessGame.TeamColor opponentColor = currGame.getTeamTurn();
         String opponentUsername = (opponentColor == ChessGame.TeamColor.WHITE) ? gameData.whiteUsername() : gameData.blackUsername();
-        NotificationMessage noti = new NotificationMessage(username + " made move " + move.toString());
+        NotificationMessage noti = new NotificationMessage(username + " made move " + move.toString()
+                + blunderAnnotation(exchange));
         try {
             sessions.broadcast(noti, authToken, gameID);
         } catch (Exception e) {
             throw new IOException("Error: " + e.getMessage());
         }
-        if (currGame.isInCheckmate(opponentColor)) {
+        GameStatus opponentStatus = currGame.getStatus(opponentColor);
+        if (opponentStatus.isInCheckmate()) {
             NotificationMessage checkmateNoti = new NotificationMessage(opponentUsername + " is in CHECKMATE");
             try {
                 sessions.broadcast(checkmateNoti, null, gameID);
             } catch (Exception e) {
                 throw new IOException("Error: " + e.getMessage());
             }
-        } else if (currGame.isInCheck(opponentColor)) {
+        } else if (opponentStatus.isInCheck()) {
             NotificationMessage checkNoti = new NotificationMessage(opponentUsername + " is in CHECK");
             try {
                 sessions.broadcast(checkNoti, null, gameID);
@@ -133,6 +198,98 @@ public class WebSocketHandler {
         }
     }
 
+    /**
+     * @param exchange the static exchange value of a move
+     * @return a note to add to the move's notification if it gives away
+     * material, otherwise an empty string
+     */
+    private static String blunderAnnotation(int exchange) {
+        if (exchange > -BLUNDER_THRESHOLD) {
+            return "";
+        }
+        return String.format(" ?? (loses %.1f pawns of material)", -exchange / 100.0);
+    }
+
+    /**
+     * Answers a book query with the opening name and book moves for the
+     * game's current position. Only the player who asked gets the answer.
+     */
+    private void book(String authToken, Integer gameID, WsMessageContext cx) throws Exception {
+        AuthData authData = authDAO.getAuth(authToken);
+        if (authData == null) { throw new DataAccessException("Bad auth token");}
+        GameData gameData = gameDAO.getGame(gameID);
+        if (gameData == null) { throw new DataAccessException("Bad game ID");}
+        ChessGame currGame = gameData.game();
+        OpeningBook book = OpeningBook.standard();
+        int[] bookMoves = new int[PieceMovesCalculator.MAX_MOVES];
+        int[] weights = new int[PieceMovesCalculator.MAX_MOVES];
+        int count = Math.min(book.bookMoves(currGame, bookMoves, weights), bookMoves.length);
+        List<ChessMove> moves = new ArrayList<>(count);
+        List<Integer> moveWeights = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(PackedMove.toChessMove(bookMoves[i]));
+            moveWeights.add(weights[i]);
+        }
+        BookMessage answer = new BookMessage(book.openingName(currGame), moves, moveWeights);
+        reply(authToken, answer, cx);
+    }
+
+    /**
+     * Starts the engine on the game's current position for the player who
+     * asked. A hint sends only the final best move; an analysis also sends
+     * each depth as it finishes. The search runs on the engine pool, never
+     * on this WebSocket thread, and replaces any search the player asked
+     * for before.
+     */
+    private void analyze(AnalyzeCommand command) throws Exception {
+        String authToken = command.getAuthToken();
+        AuthData authData = authDAO.getAuth(authToken);
+        if (authData == null) { throw new DataAccessException("Bad auth token");}
+        GameData gameData = gameDAO.getGame(command.getGameID());
+        if (gameData == null) { throw new DataAccessException("Bad game ID");}
+        Connection connection = sessions.get(authToken);
+        if (connection == null || !connection.gameId.equals(command.getGameID())) {
+            throw new DataAccessException("Connect to the game before asking the engine");
+        }
+        ChessGame currGame = gameData.game();
+        boolean hint = command.getCommandType() == UserGameCommand.CommandType.HINT;
+        long millis = command.getMillis() != null ? command.getMillis()
+                : hint ? DEFAULT_HINT_MILLIS : DEFAULT_ANALYSIS_MILLIS;
+        ChessGame.TeamColor toMove = currGame.getTeamTurn();
+        engine.submit(authToken, command.getGameID(), currGame, millis,
+                hint ? EngineWorkerPool.Priority.HINT : EngineWorkerPool.Priority.ANALYSIS,
+                hint ? null : result -> sendAnalysis(connection, result, toMove, false),
+                result -> sendAnalysis(connection, result, toMove, true));
+    }
+
+    private void sendAnalysis(Connection connection, SearchResult result, ChessGame.TeamColor toMove,
+                              boolean complete) {
+        int sign = toMove == ChessGame.TeamColor.WHITE ? 1 : -1;
+        Integer mateIn = result.isMate() ? sign * result.mateIn() : null;
+        AnalysisMessage message = new AnalysisMessage(result.depth(), sign * result.score(), mateIn,
+                result.getBestMove(), result.getPrincipalVariation(), result.nodes(), result.nanos() / 1_000_000,
+                complete);
+        try {
+            connection.send(gson.toJson(message), message.getServerMessageType());
+        } catch (IOException e) {
+            engine.cancel(connection.authToken);
+        }
+    }
+
+    /**
+     * Finishes the queued commands, stops the engine workers and logs how
+     * outgoing messages fared
+     */
+    public void close() {
+        mailboxes.close();
+        engine.close();
+        ConnectionManager.Metrics metrics = sessions.getMetrics();
+        System.out.println(String.format("WebSocket connections: %d, messages sent: %d, dropped: %d, "
+                        + "still queued: %d, send latency avg %.2f ms, max %.2f ms", metrics.connections(),
+                metrics.sent(), metrics.dropped(), metrics.queued(), metrics.averageLatencyMillis(),
+                metrics.maxLatencyMillis()));
+    }
+
     private void resign(String authToken, Integer gameID) throws Exception {
         AuthData authData = authDAO.getAuth(authToken);
         if (authData == null) { throw new DataAccessException("Bad auth token");}
@@ -159,6 +316,7 @@ public class WebSocketHandler {
         GameData gameData = gameDAO.getGame(gameID);
         if (gameData == null) { throw new DataAccessException("Bad game ID"); }
         sessions.remove(authToken);
+        engine.cancel(authToken);
         NotificationMessage notification = new NotificationMessage(authData.username() + " left the game");
         sessions.broadcast(notification, authToken, gameID);
         String username = authData.username();
@@ -186,7 +344,7 @@ public class WebSocketHandler {
             var connection = new Connection(authToken, cx.session, gameId);
             sessions.add(authToken, connection);
             LoadGameMessage loadGame = new LoadGameMessage(gameData.game());
-            connection.send(gson.toJson(loadGame));
+            connection.send(gson.toJson(loadGame), loadGame.getServerMessageType());
             String message;
             if (Objects.equals(authData.username(), gameData.whiteUsername())) {
                 message = String.format("%s joined as White", authData.username());
@@ -0,0 +1,249 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConnectionPoolTests {
+
+    /**
+     * Stands in for a database connection, recording what is done to it
+     */
+    private static class FakeConnection {
+        boolean closed;
+        boolean valid = true;
+        boolean autoCommit = true;
+        int rollbacks;
+
+        Connection connection() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "isValid" -> valid;
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rollbacks++;
+                            yield null;
+                        }
+                        case "getCatalog" -> "chess";
+                        case "commit" -> throw new SQLException("Communications link failure", "08S01");
+                        default -> null;
+                    });
+        }
+    }
+
+    private final List<FakeConnection> opened = new CopyOnWriteArrayList<>();
+
+    private ConnectionPool pool(ConnectionPool.Settings settings) {
+        return new ConnectionPool(() -> {
+            FakeConnection fake = new FakeConnection();
+            opened.add(fake);
+            return fake.connection();
+        }, settings);
+    }
+
+    private ConnectionPool pool(int min, int max, Duration acquireTimeout, Duration idleTimeout,
+                                Duration validationInterval, Duration leakThreshold) {
+        return pool(new ConnectionPool.Settings(min, max, acquireTimeout, idleTimeout, validationInterval,
+                leakThreshold, false));
+    }
+
+    private ConnectionPool pool(int min, int max) {
+        return pool(min, max, Duration.ofMillis(200), Duration.ofMinutes(5), Duration.ofMinutes(5),
+                Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("Returned Connections Are Reused")
+    public void reuse() throws Exception {
+        try (ConnectionPool pool = pool(0, 2)) {
+            Connection first = pool.getConnection();
+            Assertions.assertEquals("chess", first.getCatalog());
+            first.setAutoCommit(false);
+            first.close();
+            // Closing twice gives it back once
+            first.close();
+            Assertions.assertTrue(first.isClosed());
+            Assertions.assertThrows(SQLException.class, first::getCatalog);
+
+            try (Connection second = pool.getConnection()) {
+                Assertions.assertFalse(second.isClosed());
+                Assertions.assertEquals(1, opened.size());
+                Assertions.assertTrue(opened.get(0).autoCommit, "Auto-commit was not restored");
+                Assertions.assertEquals(1, opened.get(0).rollbacks);
+                Assertions.assertEquals(1, pool.getMetrics().active());
+            }
+            ConnectionPool.Metrics metrics = pool.getMetrics();
+            Assertions.assertEquals(0, metrics.active());
+            Assertions.assertEquals(1, metrics.idle());
+            Assertions.assertEquals(2, metrics.acquired());
+            Assertions.assertEquals(1, metrics.created());
+            Assertions.assertFalse(opened.get(0).closed);
+        }
+    }
+
+    @Test
+    @DisplayName("Full Pool Times Out")
+    public void timeout() throws Exception {
+        try (ConnectionPool pool = pool(0, 2)) {
+            Connection first = pool.getConnection();
+            Connection second = pool.getConnection();
+            long start = System.nanoTime();
+            Assertions.assertThrows(DataAccessException.class, pool::getConnection);
+            Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150),
+                    "Gave up without waiting");
+            Assertions.assertEquals(2, opened.size());
+            Assertions.assertEquals(1, pool.getMetrics().timeouts());
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Waiter Gets A Returned Connection")
+    public void waiter() throws Exception {
+        try (ConnectionPool pool = pool(0, 1, Duration.ofSeconds(5), Duration.ofMinutes(5), Duration.ofMinutes(5),
+                Duration.ofMinutes(5))) {
+            Connection held = pool.getConnection();
+            AtomicReference<Connection> received = new AtomicReference<>();
+            CountDownLatch done = new CountDownLatch(1);
+            Thread waiter = new Thread(() -> {
+                try {
+                    received.set(pool.getConnection());
+                } catch (DataAccessException e) {
+                    Assertions.fail(e);
+                }
+                done.countDown();
+            });
+            waiter.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pool.getMetrics().waiters() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Assertions.assertEquals(1, pool.getMetrics().waiters());
+            held.close();
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, opened.size());
+            Assertions.assertTrue(pool.getMetrics().maxWaitNanos() > 0);
+            received.get().close();
+        }
+    }
+
+    @Test
+    @DisplayName("Dead Connections Are Replaced")
+    public void validation() throws Exception {
+        try (ConnectionPool pool = pool(0, 2, Duration.ofMillis(200), Duration.ofMinutes(5), Duration.ZERO,
+                Duration.ofMinutes(5))) {
+            pool.getConnection().close();
+            opened.get(0).valid = false;
+            try (Connection connection = pool.getConnection()) {
+                Assertions.assertEquals(2, opened.size());
+                Assertions.assertTrue(opened.get(0).closed);
+            }
+
+            // A connection error while borrowed keeps it out of the pool
+            Connection broken = pool.getConnection();
+            Assertions.assertThrows(SQLException.class, broken::commit);
+            broken.close();
+            Assertions.assertTrue(opened.get(1).closed);
+            Assertions.assertEquals(0, pool.getMetrics().idle());
+        }
+    }
+
+    @Test
+    @DisplayName("Idle Connections Are Closed Down To The Minimum")
+    public void eviction() throws Exception {
+        try (ConnectionPool pool = pool(1, 3, Duration.ofMillis(200), Duration.ofMillis(20), Duration.ofMinutes(5),
+                Duration.ofMinutes(5))) {
+            Connection a = pool.getConnection();
+            Connection b = pool.getConnection();
+            Connection c = pool.getConnection();
+            a.close();
+            b.close();
+            c.close();
+            Assertions.assertEquals(3, pool.getMetrics().idle());
+            Thread.sleep(50);
+            pool.housekeep();
+            Assertions.assertEquals(1, pool.getMetrics().idle());
+            Assertions.assertEquals(2, opened.stream().filter(fake -> fake.closed).count());
+        }
+    }
+
+    @Test
+    @DisplayName("Minimum Is Opened Ahead Of Time")
+    public void minimum() throws Exception {
+        try (ConnectionPool pool = pool(2, 4)) {
+            pool.housekeep();
+            Assertions.assertEquals(2, pool.getMetrics().idle());
+            Assertions.assertEquals(2, opened.size());
+            pool.getConnection().close();
+            Assertions.assertEquals(2, opened.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Leaks Are Reported Once")
+    public void leaks() throws Exception {
+        try (ConnectionPool pool = pool(new ConnectionPool.Settings(0, 2, Duration.ofMillis(200),
+                Duration.ofMinutes(5), Duration.ofMinutes(5), Duration.ofMillis(10), true))) {
+            Connection leaked = pool.getConnection();
+            Thread.sleep(30);
+            pool.housekeep();
+            pool.housekeep();
+            Assertions.assertEquals(1, pool.getMetrics().leaks());
+            leaked.close();
+
+            // Borrowed again, it may be reported again
+            Connection again = pool.getConnection();
+            Thread.sleep(30);
+            pool.housekeep();
+            Assertions.assertEquals(2, pool.getMetrics().leaks());
+            again.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Leaks Are Not Looked For Unless Enabled")
+    public void leakDetectionOff() throws Exception {
+        try (ConnectionPool pool = pool(0, 2, Duration.ofMillis(200), Duration.ofMinutes(5), Duration.ofMinutes(5),
+                Duration.ofMillis(10))) {
+            Connection held = pool.getConnection();
+            Thread.sleep(30);
+            pool.housekeep();
+            Assertions.assertEquals(0, pool.getMetrics().leaks());
+            held.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Closed Pool Closes Its Connections")
+    public void close() throws Exception {
+        ConnectionPool pool = pool(0, 2);
+        Connection idle = pool.getConnection();
+        Connection borrowed = pool.getConnection();
+        idle.close();
+        pool.close();
+        Assertions.assertTrue(opened.get(0).closed);
+        Assertions.assertThrows(DataAccessException.class, pool::getConnection);
+        borrowed.close();
+        Assertions.assertTrue(opened.get(1).closed);
+    }
+}
@@ -0,0 +1,208 @@
+package dataaccess.game;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.DataAccessException;
+import model.GameData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+
+public class CachedGameDAOTests {
+
+    /**
+     * Counts the calls that reach it, and can be made to fail
+     */
+    private static class CountingGameDAO extends MemoryGameDAO {
+        int reads;
+        int writes;
+        volatile int batches;
+        boolean failing;
+        volatile boolean failingBatches;
+
+        @Override
+        public GameData getGame(int gameID) {
+            reads++;
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public void updateGame(int gameID, GameData game) throws DataAccessException {
+            if (failing) {
+                throw new DataAccessException("Database unavailable");
+            }
+            writes++;
+            super.updateGame(gameID, game);
+        }
+
+        @Override
+        public void updateGames(Collection<GameData> games) throws DataAccessException {
+            batches++;
+            if (failingBatches) {
+                throw new DataAccessException("Batch rolled back");
+            }
+            super.updateGames(games);
+        }
+    }
+
+    private static CachedGameDAO cache(CountingGameDAO backing, CachedGameDAO.Durability durability,
+                                       Duration idleTimeout) {
+        // Flushed by hand, so the tests decide when writes happen
+        return new CachedGameDAO(backing, new CachedGameDAO.Settings(Duration.ofHours(1), durability, idleTimeout));
+    }
+
+    private static int newGame(CountingGameDAO backing) throws DataAccessException {
+        int gameID = backing.createGame("game");
+        backing.updateGame(gameID, new GameData(gameID, "white", "black", "game", new ChessGame()));
+        backing.writes = 0;
+        return gameID;
+    }
+
+    private static GameData play(GameData game, String from, String to) throws Exception {
+        ChessPosition start = new ChessPosition(from.charAt(1) - '0', from.charAt(0) - 'a' + 1);
+        ChessPosition end = new ChessPosition(to.charAt(1) - '0', to.charAt(0) - 'a' + 1);
+        game.game().makeMove(new ChessMove(start, end, null));
+        return game;
+    }
+
+    @Test
+    @DisplayName("Games Are Read Once")
+    public void reads() throws Exception {
+        CountingGameDAO backing = new CountingGameDAO();
+        int gameID = newGame(backing);
+        try (CachedGameDAO cache = cache(backing, CachedGameDAO.Durability.WRITE_BEHIND, Duration.ofHours(1))) {
+            GameData first = cache.getGame(gameID);
+            GameData second = cache.getGame(gameID);
+            Assertions.assertEquals(1, backing.reads);
+            Assertions.assertNotSame(first.game(), second.game(), "Callers share a game");
+            // Changing a copy does not change the cached game
+            play(first, "e2", "e4");
+            Assertions.assertEquals(ChessGame.TeamColor.WHITE, cache.getGame(gameID).game().getTeamTurn());
+            Assertions.assertNull(cache.getGame(gameID + 100));
+        }
+    }
+
+    @Test
+    @DisplayName("Updates Are Written Together")
+    public void writeBehind() throws Exception {
+        CountingGameDAO backing = new CountingGameDAO();
+        int first = newGame(backing);
+        int second = newGame(backing);
+        try (CachedGameDAO cache = cache(backing, CachedGameDAO.Durability.WRITE_BEHIND, Duration.ofHours(1))) {
+            cache.updateGame(first, play(cache.getGame(first), "e2", "e4"));
+            cache.updateGame(first, play(cache.getGame(first), "e7", "e5"));
+            cache.updateGame(second, play(cache.getGame(second), "d2", "d4"));
+            Assertions.assertEquals(0, backing.writes);
+            Assertions.assertEquals(2, cache.getPending());
+            Assertions.assertEquals(ChessGame.TeamColor.WHITE, backing.getGame(first).game().getTeamTurn());
+            // Listing shows the games as they are, not as they were written
+            for (GameData listed : cache.listGames()) {
+                Assertions.assertNotNull(listed.game().getBoard().getPiece(new ChessPosition(4,
+                        listed.gameID() == first ? 5 : 4)));
+            }
+
+            cache.flush();
+            Assertions.assertEquals(1, backing.batches);
+            Assertions.assertEquals(2, backing.writes);
+            Assertions.assertEquals(0, cache.getPending());
+            Assertions.assertEquals(ChessGame.TeamColor.WHITE, backing.getGame(first).game().getTeamTurn());
+            Assertions.assertNotNull(backing.getGame(first).game().getBoard().getPiece(new ChessPosition(5, 5)));
+            cache.flush();
+            Assertions.assertEquals(1, backing.batches, "Nothing changed, yet it wrote again");
+        }
+    }
+
+    @Test
+    @DisplayName("Write Through Writes Every Update")
+    public void writeThrough() throws Exception {
+        CountingGameDAO backing = new CountingGameDAO();
+        int gameID = newGame(backing);
+        try (CachedGameDAO cache = cache(backing, CachedGameDAO.Durability.WRITE_THROUGH, Duration.ofHours(1))) {
+            cache.updateGame(gameID, play(cache.getGame(gameID), "e2", "e4"));
+            Assertions.assertEquals(1, backing.writes);
+            Assertions.assertEquals(0, cache.getPending());
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, backing.getGame(gameID).game().getTeamTurn());
+            Assertions.assertThrows(DataAccessException.class,
+                    () -> cache.updateGame(gameID + 100, new GameData(gameID + 100, null, null, "none", null)));
+        }
+    }
+
+    @Test
+    @DisplayName("Failed Flush Is Retried")
+    public void failedFlush() throws Exception {
+        CountingGameDAO backing = new CountingGameDAO();
+        int gameID = newGame(backing);
+        try (CachedGameDAO cache = cache(backing, CachedGameDAO.Durability.WRITE_BEHIND, Duration.ofHours(1))) {
+            cache.updateGame(gameID, play(cache.getGame(gameID), "e2", "e4"));
+            backing.failing = true;
+            Assertions.assertThrows(DataAccessException.class, cache::flush);
+            Assertions.assertEquals(1, cache.getPending());
+            backing.failing = false;
+            cache.flush();
+            Assertions.assertEquals(0, cache.getPending());
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, backing.getGame(gameID).game().getTeamTurn());
+        }
+    }
+
+    @Test
+    @DisplayName("Failed Batch Is Written By The Next Scheduled Flush")
+    public void failedBatch() throws Exception {
+        CountingGameDAO backing = new CountingGameDAO();
+        int gameID = newGame(backing);
+        backing.failingBatches = true;
+        try (CachedGameDAO cache = new CachedGameDAO(backing, new CachedGameDAO.Settings(Duration.ofMillis(10),
+                CachedGameDAO.Durability.WRITE_BEHIND, Duration.ofHours(1)))) {
+            cache.updateGame(gameID, play(cache.getGame(gameID), "e2", "e4"));
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (backing.batches < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Assertions.assertTrue(backing.batches >= 2, "Failed batch was not tried again");
+            Assertions.assertEquals(1, cache.getPending());
+            Assertions.assertEquals(ChessGame.TeamColor.WHITE, backing.getGame(gameID).game().getTeamTurn());
+
+            backing.failingBatches = false;
+            while (cache.getPending() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Assertions.assertEquals(0, cache.getPending());
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, backing.getGame(gameID).game().getTeamTurn());
+        }
+    }
+
+    @Test
+    @DisplayName("Idle Games Are Dropped Once Written")
+    public void eviction() throws Exception {
+        CountingGameDAO backing = new CountingGameDAO();
+        int gameID = newGame(backing);
+        try (CachedGameDAO cache = cache(backing, CachedGameDAO.Durability.WRITE_BEHIND, Duration.ZERO)) {
+            cache.updateGame(gameID, play(cache.getGame(gameID), "e2", "e4"));
+            Thread.sleep(5);
+            cache.evictIdle();
+            Assertions.assertEquals(1, cache.getCached(), "Dropped before it was written");
+            cache.flush();
+            cache.evictIdle();
+            Assertions.assertEquals(0, cache.getCached());
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, cache.getGame(gameID).game().getTeamTurn());
+            Assertions.assertEquals(2, backing.reads);
+        }
+    }
+
+    @Test
+    @DisplayName("Clear Drops Pending Games")
+    public void clear() throws Exception {
+        CountingGameDAO backing = new CountingGameDAO();
+        int gameID = newGame(backing);
+        try (CachedGameDAO cache = cache(backing, CachedGameDAO.Durability.WRITE_BEHIND, Duration.ofHours(1))) {
+            cache.updateGame(gameID, play(cache.getGame(gameID), "e2", "e4"));
+            cache.clear();
+            Assertions.assertEquals(0, cache.getPending());
+            Assertions.assertNull(cache.getGame(gameID));
+            Assertions.assertTrue(cache.listGames().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.messages.NotificationMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+
+public class ConnectionManagerTests {
+
+    /**
+     * Stands in for a client's socket, keeping what is sent to it. A stalled
+     * client holds its writes until it is released.
+     */
+    static class FakeSession {
+        final List<String> received = new ArrayList<>();
+        final List<WriteCallback> pending = new ArrayList<>();
+        boolean open = true;
+        boolean stalled;
+        int closes;
+
+        Session session() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString")) {
+                            received.add((String) args[0]);
+                            WriteCallback callback = (WriteCallback) args[1];
+                            if (stalled) {
+                                pending.add(callback);
+                            } else {
+                                callback.writeSuccess();
+                            }
+                        }
+                        return null;
+                    });
+            return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "isOpen" -> open;
+                        case "getRemote" -> remote;
+                        case "close" -> {
+                            closes++;
+                            open = false;
+                            yield null;
+                        }
+                        default -> null;
+                    });
+        }
+
+        /**
+         * Lets the client catch up on everything sent to it
+         */
+        void release() {
+            stalled = false;
+            while (!pending.isEmpty()) {
+                pending.remove(0).writeSuccess();
+            }
+        }
+    }
+
+    private static Connection connect(ConnectionManager manager, String authToken, int gameId, FakeSession fake) {
+        Connection connection = new Connection(authToken, fake.session(), gameId);
+        manager.add(authToken, connection);
+        return connection;
+    }
+
+    @Test
+    @DisplayName("Broadcast Reaches Only The Game")
+    public void broadcast() throws Exception {
+        ConnectionManager manager = new ConnectionManager();
+        FakeSession white = new FakeSession();
+        FakeSession black = new FakeSession();
+        FakeSession elsewhere = new FakeSession();
+        connect(manager, "white", 1, white);
+        connect(manager, "black", 1, black);
+        connect(manager, "elsewhere", 2, elsewhere);
+
+        manager.broadcast(new NotificationMessage("white moved"), "white", 1);
+        Assertions.assertTrue(white.received.isEmpty());
+        Assertions.assertEquals(1, black.received.size());
+        Assertions.assertTrue(black.received.get(0).contains("white moved"));
+        Assertions.assertTrue(elsewhere.received.isEmpty());
+
+        manager.broadcast(new NotificationMessage("everyone"), null, 1);
+        Assertions.assertEquals(1, white.received.size());
+        Assertions.assertEquals(2, black.received.size());
+        manager.broadcast(new NotificationMessage("nobody"), null, 3);
+    }
+
+    @Test
+    @DisplayName("Connections Are Found By Token And Game")
+    public void indexes() {
+        ConnectionManager manager = new ConnectionManager();
+        Connection first = connect(manager, "player", 1, new FakeSession());
+        Assertions.assertSame(first, manager.get("player"));
+        Assertions.assertEquals(Set.of(first), manager.getGameConnections(1));
+
+        // Connecting to another game moves the token there
+        Connection second = connect(manager, "player", 2, new FakeSession());
+        Assertions.assertSame(second, manager.get("player"));
+        Assertions.assertTrue(manager.getGameConnections(1).isEmpty());
+        Assertions.assertEquals(Set.of(second), manager.getGameConnections(2));
+
+        manager.remove("player");
+        Assertions.assertNull(manager.get("player"));
+        Assertions.assertTrue(manager.getGameConnections(2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Replaced Connections Are Closed")
+    public void replaced() throws Exception {
+        ConnectionManager manager = new ConnectionManager();
+        FakeSession oldTab = new FakeSession();
+        Connection first = connect(manager, "player", 1, oldTab);
+        connect(manager, "player", 2, new FakeSession());
+        Assertions.assertEquals(1, oldTab.closes);
+        Assertions.assertThrows(IOException.class, () -> first.send("late"));
+
+        // The same socket moving to another game stays open
+        FakeSession socket = new FakeSession();
+        Session shared = socket.session();
+        manager.add("observer", new Connection("observer", shared, 1));
+        Connection moved = new Connection("observer", shared, 2);
+        manager.add("observer", moved);
+        Assertions.assertEquals(0, socket.closes);
+        moved.send("still here");
+        Assertions.assertEquals(List.of("still here"), socket.received);
+    }
+
+    @Test
+    @DisplayName("Removing While Adding Leaves No Stray Connection")
+    public void removeRacesAdd() throws Exception {
+        ConnectionManager manager = new ConnectionManager();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        for (int round = 0; round < 2000; round++) {
+            connect(manager, "player", 1, new FakeSession());
+            Connection next = new Connection("player", new FakeSession().session(), 2);
+            Thread adder = new Thread(() -> {
+                try {
+                    barrier.await();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                manager.add("player", next);
+            });
+            adder.start();
+            barrier.await();
+            manager.remove("player");
+            adder.join();
+
+            // Whichever won, the game indexes hold just the token's current connection
+            Connection current = manager.get("player");
+            Assertions.assertTrue(manager.getGameConnections(1).isEmpty(), "Stray connection in round " + round);
+            Assertions.assertEquals(current == null ? Set.of() : Set.of(next), manager.getGameConnections(2),
+                    "Stray connection in round " + round);
+            manager.remove("player");
+        }
+    }
+
+    @Test
+    @DisplayName("Closed Connections Are Dropped")
+    public void closed() throws Exception {
+        ConnectionManager manager = new ConnectionManager();
+        FakeSession gone = new FakeSession();
+        FakeSession staying = new FakeSession();
+        connect(manager, "gone", 1, gone);
+        Connection stays = connect(manager, "staying", 1, staying);
+        gone.open = false;
+        manager.broadcast(new NotificationMessage("hello"), null, 1);
+        Assertions.assertNull(manager.get("gone"));
+        Assertions.assertEquals(Set.of(stays), manager.getGameConnections(1));
+        Assertions.assertEquals(1, staying.received.size());
+    }
+}
@@ -0,0 +1,123 @@
+package websocket;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.io.IOException;
+import java.util.List;
+
+public class ConnectionTests {
+
+    private static Connection stalled(ConnectionManagerTests.FakeSession fake, int capacity,
+                                      Connection.Overflow overflow) {
+        fake.stalled = true;
+        return new Connection("player", fake.session(), 1, capacity, overflow);
+    }
+
+    @Test
+    @DisplayName("Slow Client Queues Without Blocking")
+    public void queues() throws IOException {
+        ConnectionManagerTests.FakeSession fake = new ConnectionManagerTests.FakeSession();
+        Connection connection = stalled(fake, 8, Connection.Overflow.DROP_OLDEST);
+        for (int i = 1; i <= 4; i++) {
+            connection.send("m" + i);
+        }
+        // Only one write is under way at a time, and the rest wait behind it
+        Assertions.assertEquals(List.of("m1"), fake.received);
+        Assertions.assertEquals(3, connection.getMetrics().queued());
+
+        fake.release();
+        Assertions.assertEquals(List.of("m1", "m2", "m3", "m4"), fake.received);
+        Connection.Metrics metrics = connection.getMetrics();
+        Assertions.assertEquals(0, metrics.queued());
+        Assertions.assertEquals(3, metrics.maxQueued());
+        Assertions.assertEquals(4, metrics.sent());
+        Assertions.assertTrue(metrics.maxLatencyNanos() > 0);
+    }
+
+    @Test
+    @DisplayName("Drop Oldest Keeps The Newest")
+    public void dropOldest() throws IOException {
+        ConnectionManagerTests.FakeSession fake = new ConnectionManagerTests.FakeSession();
+        Connection connection = stalled(fake, 2, Connection.Overflow.DROP_OLDEST);
+        for (int i = 1; i <= 4; i++) {
+            connection.send("m" + i);
+        }
+        fake.release();
+        // m1 was already being written, so m2 made room
+        Assertions.assertEquals(List.of("m1", "m3", "m4"), fake.received);
+        Assertions.assertEquals(1, connection.getMetrics().dropped());
+    }
+
+    @Test
+    @DisplayName("Capacity Counts Only Waiting Messages")
+    public void capacityOne() throws IOException {
+        ConnectionManagerTests.FakeSession fake = new ConnectionManagerTests.FakeSession();
+        Connection connection = stalled(fake, 1, Connection.Overflow.DROP_OLDEST);
+        for (int i = 1; i <= 4; i++) {
+            connection.send("m" + i);
+            Assertions.assertTrue(connection.getMetrics().queued() <= 1, "Queue went past its capacity");
+        }
+        Connection.Metrics metrics = connection.getMetrics();
+        Assertions.assertEquals(1, metrics.queued());
+        Assertions.assertEquals(1, metrics.maxQueued());
+        Assertions.assertEquals(2, metrics.dropped());
+        fake.release();
+        Assertions.assertEquals(List.of("m1", "m4"), fake.received);
+        Assertions.assertEquals(0, connection.getMetrics().queued());
+    }
+
+    @Test
+    @DisplayName("Board Updates Coalesce")
+    public void coalesce() throws IOException {
+        ConnectionManagerTests.FakeSession fake = new ConnectionManagerTests.FakeSession();
+        Connection connection = stalled(fake, 2, Connection.Overflow.COALESCE_LOAD_GAME);
+        connection.send("board1", ServerMessageType.LOAD_GAME);
+        connection.send("note1", ServerMessageType.NOTIFICATION);
+        connection.send("board2", ServerMessageType.LOAD_GAME);
+        connection.send("board3", ServerMessageType.LOAD_GAME);
+        fake.release();
+        Assertions.assertEquals(List.of("board1", "note1", "board3"), fake.received);
+        Assertions.assertEquals(1, connection.getMetrics().dropped());
+    }
+
+    @Test
+    @DisplayName("Disconnect Closes A Client That Falls Behind")
+    public void disconnect() throws IOException {
+        ConnectionManagerTests.FakeSession fake = new ConnectionManagerTests.FakeSession();
+        Connection connection = stalled(fake, 1, Connection.Overflow.DISCONNECT);
+        connection.send("m1");
+        connection.send("m2");
+        Assertions.assertThrows(IOException.class, () -> connection.send("m3"));
+        Assertions.assertEquals(1, fake.closes);
+        Assertions.assertThrows(IOException.class, () -> connection.send("m4"));
+    }
+
+    @Test
+    @DisplayName("Stalled Spectator Does Not Hold Up Players")
+    public void spectator() throws IOException {
+        ConnectionManager manager = new ConnectionManager();
+        ConnectionManagerTests.FakeSession player = new ConnectionManagerTests.FakeSession();
+        ConnectionManagerTests.FakeSession spectator = new ConnectionManagerTests.FakeSession();
+        spectator.stalled = true;
+        manager.add("player", new Connection("player", player.session(), 1));
+        manager.add("spectator", new Connection("spectator", spectator.session(), 1));
+        for (int i = 0; i < 5; i++) {
+            manager.broadcast(new NotificationMessage("move " + i), null, 1);
+        }
+        Assertions.assertEquals(5, player.received.size());
+        Assertions.assertEquals(1, spectator.received.size());
+        ConnectionManager.Metrics metrics = manager.getMetrics();
+        Assertions.assertEquals(2, metrics.connections());
+        // One of the spectator's messages is being written, and four wait
+        Assertions.assertEquals(4, metrics.queued());
+        Assertions.assertEquals(5, metrics.sent());
+
+        spectator.release();
+        Assertions.assertEquals(5, spectator.received.size());
+        Assertions.assertEquals(0, manager.getMetrics().queued());
+    }
+}
@@ -0,0 +1,156 @@
+package websocket;
+
+import chess.ChessGame;
+import chess.engine.SearchResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class EngineWorkerPoolTests {
+
+    private static void awaitIdle(EngineWorkerPool pool) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getJobs() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, pool.getJobs(), "Jobs still running");
+    }
+
+    @Test
+    @DisplayName("Analysis Streams Each Depth")
+    public void streamsIterations() throws InterruptedException {
+        try (EngineWorkerPool pool = new EngineWorkerPool(1, 4)) {
+            List<SearchResult> iterations = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(1);
+            String[] thread = new String[1];
+            pool.submit("player", 1, new ChessGame(), 300, EngineWorkerPool.Priority.ANALYSIS, iterations::add,
+                    result -> {
+                        thread[0] = Thread.currentThread().getName();
+                        done.countDown();
+                    });
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assertions.assertFalse(iterations.isEmpty());
+            for (int i = 0; i < iterations.size(); i++) {
+                Assertions.assertEquals(i + 1, iterations.get(i).depth());
+                Assertions.assertNotNull(iterations.get(i).getBestMove());
+            }
+            Assertions.assertTrue(thread[0].startsWith("engine-worker"), "Ran on " + thread[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Hints Run Before Queued Analysis")
+    public void priority() throws InterruptedException {
+        try (EngineWorkerPool pool = new EngineWorkerPool(1, 4)) {
+            List<String> finished = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(3);
+            // Keeps the only worker busy while the other two queue up
+            pool.submit("busy", 1, new ChessGame(), 300, EngineWorkerPool.Priority.ANALYSIS, null, result -> {
+                finished.add("busy");
+                done.countDown();
+            });
+            pool.submit("observer", 1, new ChessGame(), 100, EngineWorkerPool.Priority.ANALYSIS, null, result -> {
+                finished.add("observer");
+                done.countDown();
+            });
+            pool.submit("player", 1, new ChessGame(), 100, EngineWorkerPool.Priority.HINT, null, result -> {
+                finished.add("player");
+                done.countDown();
+            });
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(List.of("busy", "player", "observer"), finished);
+        }
+    }
+
+    @Test
+    @DisplayName("Full Pool Turns Requests Away")
+    public void capacity() throws InterruptedException {
+        try (EngineWorkerPool pool = new EngineWorkerPool(1, 2)) {
+            pool.submit("a", 1, new ChessGame(), 200, EngineWorkerPool.Priority.ANALYSIS, null, result -> { });
+            pool.submit("b", 1, new ChessGame(), 200, EngineWorkerPool.Priority.ANALYSIS, null, result -> { });
+            Assertions.assertThrows(RejectedExecutionException.class, () -> pool.submit("c", 1, new ChessGame(),
+                    200, EngineWorkerPool.Priority.HINT, null, result -> { }));
+            // Replacing a request does not need more room
+            pool.submit("b", 1, new ChessGame(), 200, EngineWorkerPool.Priority.ANALYSIS, null, result -> { });
+            awaitIdle(pool);
+        }
+    }
+
+    @Test
+    @DisplayName("Cancelled Searches Stop And Report Nothing")
+    public void cancellation() throws InterruptedException {
+        try (EngineWorkerPool pool = new EngineWorkerPool(1, 4)) {
+            List<String> finished = new CopyOnWriteArrayList<>();
+            CountDownLatch started = new CountDownLatch(1);
+            long start = System.nanoTime();
+            pool.submit("player", 1, new ChessGame(), 5000, EngineWorkerPool.Priority.ANALYSIS,
+                    result -> started.countDown(), result -> finished.add("player"));
+            pool.submit("observer", 2, new ChessGame(), 5000, EngineWorkerPool.Priority.ANALYSIS, null,
+                    result -> finished.add("observer"));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            pool.cancel("player");
+            pool.cancelGame(2);
+            awaitIdle(pool);
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4),
+                    "Cancelled searches ran to their time limit");
+            Assertions.assertTrue(finished.isEmpty(), "Cancelled jobs reported " + finished);
+        }
+    }
+
+    @Test
+    @DisplayName("New Request Replaces The Last")
+    public void replacement() throws InterruptedException {
+        try (EngineWorkerPool pool = new EngineWorkerPool(1, 4)) {
+            List<Integer> finished = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(1);
+            pool.submit("player", 1, new ChessGame(), 5000, EngineWorkerPool.Priority.ANALYSIS, null,
+                    result -> finished.add(1));
+            pool.submit("player", 1, new ChessGame(), 100, EngineWorkerPool.Priority.HINT, null, result -> {
+                finished.add(2);
+                done.countDown();
+            });
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            awaitIdle(pool);
+            Assertions.assertEquals(List.of(2), finished);
+        }
+    }
+
+    @Test
+    @DisplayName("Cancelling A Finishing Search Leaves The Next One Alone")
+    public void cancelAsFinished() throws InterruptedException {
+        try (EngineWorkerPool pool = new EngineWorkerPool(1, 4)) {
+            for (int round = 0; round < 10; round++) {
+                CountDownLatch started = new CountDownLatch(1);
+                CountDownLatch done = new CountDownLatch(1);
+                AtomicReference<SearchResult> next = new AtomicReference<>();
+                // Both run on the one worker, so the second reuses the first's search
+                pool.submit("a", 1, new ChessGame(), EngineWorkerPool.MIN_MILLIS, EngineWorkerPool.Priority.HINT,
+                        result -> started.countDown(), result -> { });
+                pool.submit("b", 2, new ChessGame(), 150, EngineWorkerPool.Priority.ANALYSIS, null, result -> {
+                    next.set(result);
+                    done.countDown();
+                });
+                long start = System.nanoTime();
+                Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+                // Keeps cancelling the first from just before its time is up
+                // until the second has finished
+                Thread.sleep(Math.max(0, EngineWorkerPool.MIN_MILLIS - 5
+                        - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+                while (done.getCount() > 0 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+                    pool.cancel("a");
+                }
+                Assertions.assertTrue(done.await(5, TimeUnit.SECONDS), "The second search never finished");
+                Assertions.assertTrue(next.get().nanos() >= TimeUnit.MILLISECONDS.toNanos(150),
+                        "The second search was stopped after " + next.get().nanos() / 1_000_000 + " ms");
+                awaitIdle(pool);
+            }
+        }
+    }
+}
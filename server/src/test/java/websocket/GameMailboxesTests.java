@@ -0,0 +1,154 @@
+package websocket;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GameMailboxesTests {
+
+    private static void awaitIdle(GameMailboxes mailboxes) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mailboxes.getActive() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(0, mailboxes.getActive(), "Mailboxes were not dropped");
+    }
+
+    @Test
+    @DisplayName("A Game's Tasks Run One At A Time In Order")
+    public void ordered() throws InterruptedException {
+        try (GameMailboxes mailboxes = new GameMailboxes()) {
+            // Not thread safe on purpose: a lost update means two tasks overlapped
+            List<Integer> order = new ArrayList<>();
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger overlaps = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(1000);
+            for (int i = 0; i < 1000; i++) {
+                int task = i;
+                mailboxes.submit(7, () -> {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    order.add(task);
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            awaitIdle(mailboxes);
+            Assertions.assertEquals(0, overlaps.get());
+            for (int i = 0; i < 1000; i++) {
+                Assertions.assertEquals(i, order.get(i));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Games Run In Parallel")
+    public void parallel() throws InterruptedException {
+        try (GameMailboxes mailboxes = new GameMailboxes()) {
+            // Each game's task waits for the other's, so they must run at once
+            CountDownLatch both = new CountDownLatch(2);
+            CountDownLatch done = new CountDownLatch(2);
+            for (int game = 1; game <= 2; game++) {
+                mailboxes.submit(game, () -> {
+                    both.countDown();
+                    try {
+                        if (both.await(5, TimeUnit.SECONDS)) {
+                            done.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            awaitIdle(mailboxes);
+        }
+    }
+
+    @Test
+    @DisplayName("A Failed Task Does Not Stop The Game")
+    public void failure() throws InterruptedException {
+        try (GameMailboxes mailboxes = new GameMailboxes()) {
+            CountDownLatch done = new CountDownLatch(1);
+            mailboxes.submit(3, () -> {
+                throw new IllegalStateException("Expected by the test");
+            });
+            mailboxes.submit(3, done::countDown);
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            awaitIdle(mailboxes);
+        }
+    }
+
+    @Test
+    @DisplayName("Tasks Queued Behind A Rejected One Still Run")
+    public void rejectedWithQueued() {
+        AtomicInteger ran = new AtomicInteger();
+        GameMailboxes[] mailboxes = new GameMailboxes[1];
+        // Another task is queued while the first drain is being handed over,
+        // and then the executor shuts down and rejects it
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(Runnable command) {
+                if (!isShutdown()) {
+                    mailboxes[0].submit(5, ran::incrementAndGet);
+                    shutdown();
+                }
+                super.execute(command);
+            }
+        };
+        mailboxes[0] = new GameMailboxes(executor);
+        Assertions.assertThrows(RejectedExecutionException.class,
+                () -> mailboxes[0].submit(5, () -> Assertions.fail("A rejected task ran")));
+        Assertions.assertEquals(1, ran.get(), "An accepted task was dropped");
+        Assertions.assertEquals(0, mailboxes[0].getActive());
+        mailboxes[0].close();
+    }
+
+    @Test
+    @DisplayName("Accepted Tasks Run When Closed During Submits")
+    public void closeDuringSubmits() throws InterruptedException {
+        GameMailboxes mailboxes = new GameMailboxes();
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> submitters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread submitter = new Thread(() -> {
+                started.countDown();
+                // A game that never empties keeps taking tasks, so stop eventually
+                for (int task = 0; task < 1_000_000; task++) {
+                    try {
+                        mailboxes.submit(task % 3, ran::incrementAndGet);
+                        accepted.incrementAndGet();
+                    } catch (RejectedExecutionException e) {
+                        return;
+                    }
+                }
+            });
+            submitters.add(submitter);
+            submitter.start();
+        }
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        mailboxes.close();
+        for (Thread submitter : submitters) {
+            submitter.join(TimeUnit.SECONDS.toMillis(5));
+            Assertions.assertFalse(submitter.isAlive());
+        }
+        awaitIdle(mailboxes);
+        Assertions.assertTrue(accepted.get() > 0);
+        Assertions.assertEquals(accepted.get(), ran.get(), "Accepted tasks were dropped");
+    }
+}
@@ -0,0 +1,295 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chessboard: one 64-bit mask for each of the
+ * twelve kinds of piece, plus occupancy masks for each team and for the whole
+ * board. Square indices run from 0 (row 1, column 1) to 63 (row 8, column 8),
+ * so bit {@code (row - 1) * 8 + (column - 1)} is set when that square holds
+ * the piece.
+ * <p>
+ * Piece indices are {@code team * 6 + type}, using the ordinals of
+ * {@link ChessGame.TeamColor} and {@link ChessPiece.PieceType}.
+ */
+public class Bitboards {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+    public static final int PIECE_TYPES = 6;
+    public static final int PIECE_KINDS = 12;
+    public static final int EMPTY = -1;
+
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition(row(square), column(square));
+        }
+    }
+
+    private final long[] pieces = new long[PIECE_KINDS];
+    private final long[] occupancy = new long[2];
+    private final byte[] mailbox = new byte[64];
+    private long occupied;
+    private long zobristKey;
+    // Running sums for Evaluation, kept up to date as pieces come and go
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
+
+    public Bitboards() {
+        Arrays.fill(mailbox, (byte) EMPTY);
+    }
+
+    /**
+     * Builds the bitboards for a chessboard
+     *
+     * @param board the board to convert
+     * @return a new set of bitboards holding the same pieces as the board
+     */
+    public static Bitboards fromBoard(ChessBoard board) {
+        return board.getBitboards().copy();
+    }
+
+    /**
+     * @return a new chessboard holding the same pieces as these bitboards
+     */
+    public ChessBoard toBoard() {
+        return ChessBoard.fromBitboards(this);
+    }
+
+    /**
+     * @return an independent copy of these bitboards
+     */
+    public Bitboards copy() {
+        Bitboards copy = new Bitboards();
+        System.arraycopy(pieces, 0, copy.pieces, 0, PIECE_KINDS);
+        System.arraycopy(occupancy, 0, copy.occupancy, 0, 2);
+        System.arraycopy(mailbox, 0, copy.mailbox, 0, 64);
+        copy.occupied = occupied;
+        copy.zobristKey = zobristKey;
+        copy.middlegameScore = middlegameScore;
+        copy.endgameScore = endgameScore;
+        copy.phase = phase;
+        return copy;
+    }
+
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return a shared, immutable position for the square
+     */
+    public static ChessPosition position(int square) {
+        return POSITIONS[square];
+    }
+
+    public static int team(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? WHITE : BLACK;
+    }
+
+    public static ChessGame.TeamColor teamColor(int team) {
+        return team == WHITE ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    public static int pieceIndex(int team, ChessPiece.PieceType type) {
+        return team * PIECE_TYPES + type.ordinal();
+    }
+
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieceIndex(team(color), type);
+    }
+
+    public static int pieceIndex(ChessPiece piece) {
+        return piece == null ? EMPTY : pieceIndex(piece.getTeamColor(), piece.getPieceType());
+    }
+
+    public static int teamOf(int pieceIndex) {
+        return pieceIndex / PIECE_TYPES;
+    }
+
+    public static int typeOf(int pieceIndex) {
+        return pieceIndex % PIECE_TYPES;
+    }
+
+    /**
+     * Places a piece on a square, replacing whatever was there
+     *
+     * @param square     the square index to change
+     * @param pieceIndex the piece to put there, or {@link #EMPTY} to clear it
+     */
+    public void set(int square, int pieceIndex) {
+        int current = mailbox[square];
+        if (current != EMPTY) {
+            remove(square, current);
+        }
+        if (pieceIndex != EMPTY) {
+            put(square, pieceIndex);
+        }
+    }
+
+    void put(int square, int pieceIndex) {
+        long bit = 1L << square;
+        pieces[pieceIndex] |= bit;
+        occupancy[teamOf(pieceIndex)] |= bit;
+        occupied |= bit;
+        mailbox[square] = (byte) pieceIndex;
+        zobristKey ^= Zobrist.piece(pieceIndex, square);
+        middlegameScore += Evaluation.MIDDLEGAME[pieceIndex][square];
+        endgameScore += Evaluation.ENDGAME[pieceIndex][square];
+        phase += Evaluation.PHASE[pieceIndex];
+    }
+
+    void remove(int square, int pieceIndex) {
+        long bit = ~(1L << square);
+        pieces[pieceIndex] &= bit;
+        occupancy[teamOf(pieceIndex)] &= bit;
+        occupied &= bit;
+        mailbox[square] = (byte) EMPTY;
+        zobristKey ^= Zobrist.piece(pieceIndex, square);
+        middlegameScore -= Evaluation.MIDDLEGAME[pieceIndex][square];
+        endgameScore -= Evaluation.ENDGAME[pieceIndex][square];
+        phase -= Evaluation.PHASE[pieceIndex];
+    }
+
+    /**
+     * @return the index of the piece on the square, or {@link #EMPTY}
+     */
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    public long pieces(int pieceIndex) {
+        return pieces[pieceIndex];
+    }
+
+    public long pieces(int team, ChessPiece.PieceType type) {
+        return pieces[pieceIndex(team, type)];
+    }
+
+    public long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    public long occupancy(int team) {
+        return occupancy[team];
+    }
+
+    public long occupancy(ChessGame.TeamColor color) {
+        return occupancy[team(color)];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on the board, see {@link Zobrist}
+     */
+    public long zobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return the sum of the middlegame values of every piece, white's
+     * positive and black's negative, see {@link Evaluation}
+     */
+    int middlegameScore() {
+        return middlegameScore;
+    }
+
+    int endgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * @return how much material is on the board, by {@link Evaluation}'s
+     * phase weights
+     */
+    int phase() {
+        return phase;
+    }
+
+    /**
+     * @return the square of the team's king, or -1 if it has none. With more
+     * than one king the lowest square wins.
+     */
+    public int kingSquare(int team) {
+        long kings = pieces[team * PIECE_TYPES + ChessPiece.PieceType.KING.ordinal()];
+        return kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+    }
+
+    /**
+     * Finds every piece of either team that attacks a square, looking outward
+     * from the square: a knight attacks it exactly when a knight on it would
+     * attack the knight's square, and likewise for the other pieces.
+     *
+     * @param square   the square being attacked
+     * @param occupied the occupancy to use for sliding pieces, normally
+     *                 {@link #occupied()}
+     * @return the squares of all attacking pieces
+     */
+    public long attackersTo(int square, long occupied) {
+        long diagonal = AttackTables.bishopAttacks(square, occupied);
+        long straight = AttackTables.rookAttacks(square, occupied);
+        return (AttackTables.pawnAttacks(BLACK, square) & pieces(WHITE, ChessPiece.PieceType.PAWN))
+                | (AttackTables.pawnAttacks(WHITE, square) & pieces(BLACK, ChessPiece.PieceType.PAWN))
+                | (AttackTables.knightAttacks(square) & (pieces(WHITE, ChessPiece.PieceType.KNIGHT)
+                        | pieces(BLACK, ChessPiece.PieceType.KNIGHT)))
+                | (AttackTables.kingAttacks(square) & (pieces(WHITE, ChessPiece.PieceType.KING)
+                        | pieces(BLACK, ChessPiece.PieceType.KING)))
+                | (diagonal & (diagonalSliders(WHITE) | diagonalSliders(BLACK)))
+                | (straight & (straightSliders(WHITE) | straightSliders(BLACK)));
+    }
+
+    /**
+     * @return whether any piece of the team attacks the square
+     */
+    public boolean isAttacked(int square, int byTeam) {
+        return isAttacked(square, byTeam, occupied);
+    }
+
+    /**
+     * @param occupied the occupancy to use for sliding pieces, for asking
+     *                 about a board with pieces lifted off, such as the
+     *                 king when testing where it can step
+     * @return whether any piece of the team attacks the square
+     */
+    public boolean isAttacked(int square, int byTeam, long occupied) {
+        if ((AttackTables.knightAttacks(square) & pieces(byTeam, ChessPiece.PieceType.KNIGHT)) != 0
+                || (AttackTables.pawnAttacks(1 - byTeam, square) & pieces(byTeam, ChessPiece.PieceType.PAWN)) != 0
+                || (AttackTables.kingAttacks(square) & pieces(byTeam, ChessPiece.PieceType.KING)) != 0) {
+            return true;
+        }
+        return (AttackTables.bishopAttacks(square, occupied) & diagonalSliders(byTeam)) != 0
+                || (AttackTables.rookAttacks(square, occupied) & straightSliders(byTeam)) != 0;
+    }
+
+    /**
+     * @return the team's bishops and queens
+     */
+    public long diagonalSliders(int team) {
+        return pieces(team, ChessPiece.PieceType.BISHOP) | pieces(team, ChessPiece.PieceType.QUEEN);
+    }
+
+    /**
+     * @return the team's rooks and queens
+     */
+    public long straightSliders(int team) {
+        return pieces(team, ChessPiece.PieceType.ROOK) | pieces(team, ChessPiece.PieceType.QUEEN);
+    }
+}
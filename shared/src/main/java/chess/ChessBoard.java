@@ -1,6 +1,5 @@
 package chess;
 
-import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -11,10 +10,54 @@ import java.util.Objects;
  */
 public class ChessBoard {
     ChessPiece[][] squares = new ChessPiece[8][8];
+    // Built on first use and kept in step by addPiece; transient so it is
+    // never serialized and is rebuilt from squares after deserialization.
+    // Volatile so a board read by several threads, as through equals and
+    // hashCode, only ever sees fully built bitboards.
+    private transient volatile Bitboards bitboards;
+    private transient long version;
+    private transient long lastVersion;
+
     public ChessBoard() {
         
     }
 
+    /**
+     * Creates an independent copy of a board, so another thread can play
+     * moves on it without touching the original
+     *
+     * @param other the board to copy
+     */
+    public ChessBoard(ChessBoard other) {
+        for (int row = 0; row < 8; row++) {
+            System.arraycopy(other.squares[row], 0, squares[row], 0, 8);
+        }
+        Bitboards otherBitboards = other.bitboards;
+        if (otherBitboards != null) {
+            bitboards = otherBitboards.copy();
+        }
+        version = other.version;
+        lastVersion = other.lastVersion;
+    }
+
+    /**
+     * Creates a chessboard holding the pieces in a set of bitboards
+     *
+     * @param bitboards the bitboards to convert
+     * @return the new chessboard
+     */
+    public static ChessBoard fromBitboards(Bitboards bitboards) {
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            int pieceIndex = bitboards.pieceAt(square);
+            if (pieceIndex != Bitboards.EMPTY) {
+                board.squares[square >>> 3][square & 7] = ChessPiece.of(pieceIndex);
+            }
+        }
+        board.bitboards = bitboards.copy();
+        return board;
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -22,7 +65,47 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow()-1][position.getColumn()-1] = piece;
+        addPiece(Bitboards.square(position), piece);
+    }
+
+    /**
+     * Adds a chess piece to the chessboard by square index
+     *
+     * @param square where to add the piece to, see {@link Bitboards}
+     * @param piece  the piece to add, or null to empty the square
+     */
+    public void addPiece(int square, ChessPiece piece) {
+        squares[square >>> 3][square & 7] = piece;
+        Bitboards current = bitboards;
+        if (current != null) {
+            current.set(square, Bitboards.pieceIndex(piece));
+        }
+        nextVersion();
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on this board, kept up to date
+     * incrementally as pieces are added and moved
+     */
+    public long zobristKey() {
+        return getBitboards().zobristKey();
+    }
+
+    /**
+     * @return a number that changes whenever the pieces on this board change,
+     * and returns to its old value when a move is taken back
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    long nextVersion() {
+        version = ++lastVersion;
+        return version;
+    }
+
+    void restoreVersion(long version) {
+        this.version = version;
     }
 
     /**
@@ -36,12 +119,98 @@ public class ChessBoard {
         return squares[position.getRow()-1][position.getColumn()-1];
     }
 
+    /**
+     * Gets a chess piece on the chessboard by square index
+     *
+     * @param square the square to get the piece from, see {@link Bitboards}
+     * @return Either the piece on the square, or null if the square is empty
+     */
+    public ChessPiece getPiece(int square) {
+        return squares[square >>> 3][square & 7];
+    }
+
+    /**
+     * Moves a piece in place, replacing anything on the end square and
+     * promoting it if the move says so. No legality checks are made, and the
+     * version is left alone since callers either take the move straight back
+     * or go through {@link ChessGame#makeMove(int)}.
+     *
+     * @param move the {@link PackedMove} to play
+     * @return the index of the captured piece, or {@link Bitboards#EMPTY}
+     */
+    int applyMove(int move) {
+        Bitboards bitboards = getBitboards();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = bitboards.pieceAt(from);
+        int captured = bitboards.pieceAt(to);
+        int promotion = PackedMove.promotion(move);
+        int placed = promotion < 0 ? piece : Bitboards.teamOf(piece) * Bitboards.PIECE_TYPES + promotion;
+
+        bitboards.remove(from, piece);
+        if (captured != Bitboards.EMPTY) {
+            bitboards.remove(to, captured);
+        }
+        bitboards.put(to, placed);
+        squares[from >>> 3][from & 7] = null;
+        squares[to >>> 3][to & 7] = ChessPiece.of(placed);
+        return captured;
+    }
+
+    /**
+     * Takes back a move played with {@link #applyMove}
+     *
+     * @param move     the move to take back
+     * @param captured the piece applyMove returned
+     */
+    void undoMove(int move, int captured) {
+        Bitboards bitboards = getBitboards();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int placed = bitboards.pieceAt(to);
+        int piece = PackedMove.promotion(move) < 0 ? placed
+                : Bitboards.pieceIndex(Bitboards.teamOf(placed), ChessPiece.PieceType.PAWN);
+
+        bitboards.remove(to, placed);
+        if (captured != Bitboards.EMPTY) {
+            bitboards.put(to, captured);
+        }
+        bitboards.put(from, piece);
+        squares[to >>> 3][to & 7] = captured == Bitboards.EMPTY ? null : ChessPiece.of(captured);
+        squares[from >>> 3][from & 7] = ChessPiece.of(piece);
+    }
+
+    /**
+     * Gets the bitboards for this board. They are built from the squares the
+     * first time they are needed and kept up to date by addPiece afterwards,
+     * so callers must not modify them.
+     *
+     * @return the bitboards for this board
+     */
+    public Bitboards getBitboards() {
+        Bitboards current = bitboards;
+        if (current == null) {
+            // Threads that race here build identical bitboards, so whichever
+            // is published last is as good as the first
+            current = new Bitboards();
+            for (int square = 0; square < 64; square++) {
+                ChessPiece piece = squares[square >>> 3][square & 7];
+                if (piece != null) {
+                    current.put(square, Bitboards.pieceIndex(piece));
+                }
+            }
+            bitboards = current;
+        }
+        return current;
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
         squares = new ChessPiece[8][8];
+        bitboards = null;
 
         // Place pawns
         for (int col = 1; col <= 8; col++) {
@@ -86,11 +255,14 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
+        if (zobristKey() != that.zobristKey()) {
+            return false;
+        }
         return Objects.deepEquals(squares, that.squares);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(zobristKey());
     }
 }
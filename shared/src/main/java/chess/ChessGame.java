@@ -12,9 +12,18 @@ import java.util.Objects;
  */
 public class ChessGame {
 
+    // Layout of makeMove's undo record: captured piece index plus one in the
+    // low bits, then the team whose turn it was, then the board version to
+    // restore. There are no castling or en passant rights in these rules.
+    private static final long UNDO_CAPTURE_MASK = 0xF;
+    private static final int UNDO_TURN_SHIFT = 4;
+    private static final int UNDO_VERSION_SHIFT = 8;
+
     private Boolean gameOver = false;
     private ChessBoard board;
     private TeamColor currentTurn;
+    private transient GameStatus whiteStatus;
+    private transient GameStatus blackStatus;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -22,6 +31,19 @@ public class ChessGame {
         this.currentTurn = TeamColor.WHITE;
     }
 
+    /**
+     * Creates an independent copy of a game. A ChessGame is not safe to share
+     * between threads, since even status queries play moves on its board, so
+     * each thread should work on its own copy.
+     *
+     * @param other the game to copy
+     */
+    public ChessGame(ChessGame other) {
+        this.board = new ChessBoard(other.board);
+        this.currentTurn = other.currentTurn;
+        this.gameOver = other.gameOver;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -59,34 +81,74 @@ public class ChessGame {
             return null;
         }
 
-        TeamColor teamColor = piece.getTeamColor();
-        Collection<ChessMove> potentialMoves = piece.pieceMoves(board, startPosition);
+        GameStatus status = getStatus(piece.getTeamColor());
+        int from = Bitboards.square(startPosition);
         Collection<ChessMove> legalMoves = new HashSet<>();
 
-        for (ChessMove move : potentialMoves) {
-            ChessBoard tempBoard = new ChessBoard();
-            for (int row = 1; row <= 8; row++) {
-                for (int col = 1; col <= 8; col++) {
-                    ChessPosition pos = new ChessPosition(row,col);
-                    tempBoard.addPiece(pos, this.board.getPiece(pos));
-                }
+        for (int i = 0; i < status.getValidMoveCount(); i++) {
+            int move = status.getValidMove(i);
+            if (PackedMove.from(move) == from) {
+                legalMoves.add(PackedMove.toChessMove(move));
             }
+        }
 
-            ChessPiece pieceToMove = tempBoard.getPiece(move.getStartPosition());
+        return legalMoves;
+    }
 
-            if (move.getPromotionPiece() != null) {
-                pieceToMove = new ChessPiece(teamColor, move.getPromotionPiece());
+    /**
+     * Writes every valid move for a team into a move buffer as
+     * {@link PackedMove} ints
+     *
+     * @param teamColor the team to get valid moves for
+     * @param moves     the buffer to write into, at least
+     *                  {@link PieceMovesCalculator#MAX_MOVES} long
+     * @return the number of moves written
+     */
+    public int validMoves(TeamColor teamColor, int[] moves) {
+        if (LegalMoves.isSupported(board, teamColor)) {
+            return LegalMoves.generate(board, teamColor, moves);
+        }
+        int count = PieceMovesCalculator.generateMoves(board, teamColor, moves, 0);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(moves[i], teamColor)) {
+                moves[legal++] = moves[i];
             }
+        }
+        return legal;
+    }
 
-            tempBoard.addPiece(move.getEndPosition(), pieceToMove);
-            tempBoard.addPiece(move.getStartPosition(), null);
+    /**
+     * @return the number of valid moves a team has, counted without writing
+     * them out where possible
+     */
+    public int countValidMoves(TeamColor teamColor) {
+        if (LegalMoves.isSupported(board, teamColor)) {
+            return LegalMoves.count(board, teamColor);
+        }
+        return validMoves(teamColor, new int[PieceMovesCalculator.MAX_MOVES]);
+    }
 
-            if (!isKingInCheckOnBoard(tempBoard, teamColor)) {
-                legalMoves.add(move);
-            }
+    /**
+     * @return True if a team has at least one valid move, stopping at the
+     * first one found where possible
+     */
+    public boolean hasValidMoves(TeamColor teamColor) {
+        if (LegalMoves.isSupported(board, teamColor)) {
+            return LegalMoves.hasAny(board, teamColor);
         }
+        return countValidMoves(teamColor) > 0;
+    }
 
-        return legalMoves;
+    /**
+     * Tries a move on the live board and takes it back again, so the check
+     * costs one move and one undo instead of a copy of the board.
+     */
+    private boolean isLegal(int move, TeamColor teamColor) {
+        int captured = board.applyMove(move);
+        boolean legal = !isKingInCheckOnBoard(board, teamColor);
+        board.undoMove(move, captured);
+        return legal;
     }
 
     /**
@@ -106,21 +168,45 @@ public class ChessGame {
             throw new InvalidMoveException("Not your turn.");
         }
 
-        Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
-        if (!validMoves.contains(move)) {
-            throw new InvalidMoveException("Illegal move.");
-        }
-
-        ChessPiece piece = board.getPiece(move.getStartPosition());
-
-        if (move.getPromotionPiece() != null) {
-            piece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
+        int requested = PackedMove.fromChessMove(move);
+        GameStatus status = getStatus(currentTurn);
+        for (int i = 0; i < status.getValidMoveCount(); i++) {
+            if (PackedMove.sameMove(status.getValidMove(i), requested)) {
+                makeMove(status.getValidMove(i));
+                return;
+            }
         }
+        throw new InvalidMoveException("Illegal move.");
+    }
 
-        board.addPiece(move.getEndPosition(), piece);
-        board.addPiece(move.getStartPosition(), null);
+    /**
+     * Plays a move in place and passes the turn, without checking that the
+     * move is legal. Use with {@link #unmakeMove} to walk a game tree on the
+     * live board instead of copying it for every move.
+     *
+     * @param move the {@link PackedMove} to play
+     * @return an undo record to hand to {@link #unmakeMove}
+     */
+    public long makeMove(int move) {
+        long version = board.getVersion();
+        int captured = board.applyMove(move);
+        board.nextVersion();
+        long undo = (captured + 1) | ((long) currentTurn.ordinal() << UNDO_TURN_SHIFT)
+                | (version << UNDO_VERSION_SHIFT);
+        currentTurn = (currentTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        return undo;
+    }
 
-        setTeamTurn((currentTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE);
+    /**
+     * Takes back the last move played with {@link #makeMove(int)}
+     *
+     * @param move the move to take back
+     * @param undo the undo record makeMove returned for it
+     */
+    public void unmakeMove(int move, long undo) {
+        board.undoMove(move, (int) (undo & UNDO_CAPTURE_MASK) - 1);
+        board.restoreVersion(undo >>> UNDO_VERSION_SHIFT);
+        currentTurn = ((undo >>> UNDO_TURN_SHIFT) & 1) == 0 ? TeamColor.WHITE : TeamColor.BLACK;
     }
 
     /**
@@ -130,53 +216,37 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        return isKingInCheckOnBoard(this.board, teamColor);
+        return getStatus(teamColor).isInCheck();
     }
 
-    private boolean isKingInCheckOnBoard(ChessBoard board, TeamColor teamColor) {
-        ChessPosition kingPosition = null;
-        for (int r = 1; r <= 8; r++) {
-            for (int c = 1; c <= 8; c++) {
-                ChessPosition pos = new ChessPosition(r, c);
-                ChessPiece piece = board.getPiece(pos);
-                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor) {
-                    kingPosition = pos;
-                    break;
-                }
-            }
-            if (kingPosition != null) {
-                break;
-            }
-        }
-
-        if (kingPosition == null) {
-            return false;
-        }
-
-        TeamColor opponentColor = (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-        for (int r = 1; r <= 8; r++) {
-            for (int c = 1; c <= 8; c++) {
-                ChessPosition currentPos = new ChessPosition(r, c);
-                ChessPiece piece = board.getPiece(currentPos);
-                if (takeKing(board, piece, opponentColor, currentPos, kingPosition)) {
-                    return true;
-                }
-            }
-        }
+    /**
+     * Determines if any piece of a team attacks a square
+     *
+     * @param position      the square to look at
+     * @param attackingTeam the team whose attacks count
+     * @return True if a piece of attackingTeam could capture on that square
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor attackingTeam) {
+        return board.getBitboards().isAttacked(Bitboards.square(position), Bitboards.team(attackingTeam));
+    }
 
-        return false;
+    /**
+     * Estimates the material a move wins or loses once the captures it
+     * invites on its end square are played out, see {@link StaticExchange}
+     *
+     * @param move the move to judge, which need not be a capture
+     * @return the material the moving team gains in centipawns, negative if
+     * the move gives material away
+     */
+    public int staticExchange(ChessMove move) {
+        return StaticExchange.evaluate(board, PackedMove.fromChessMove(move));
     }
 
-    private static boolean takeKing(ChessBoard brd, ChessPiece piece, TeamColor opCol, ChessPosition curPos, ChessPosition kingPos) {
-        if (piece != null && piece.getTeamColor() == opCol) {
-            Collection<ChessMove> moves = PieceMovesCalculator.calculateMoves(brd, curPos);
-            for (ChessMove move : moves) {
-                if (move.getEndPosition().equals(kingPos)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    private boolean isKingInCheckOnBoard(ChessBoard board, TeamColor teamColor) {
+        Bitboards bitboards = board.getBitboards();
+        int team = Bitboards.team(teamColor);
+        int kingSquare = bitboards.kingSquare(team);
+        return kingSquare >= 0 && bitboards.isAttacked(kingSquare, 1 - team);
     }
 
     /**
@@ -186,10 +256,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
-        }
-        return !hasAnyValidMoves(teamColor);
+        return getStatus(teamColor).isInCheckmate();
     }
 
     /**
@@ -200,13 +267,43 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (getTeamTurn() != teamColor) {
-            return false;
+        return getStatus(teamColor).isInStalemate();
+    }
+
+    /**
+     * Gets the status of the team whose turn it is
+     *
+     * @return the team's valid moves and check, checkmate and stalemate state
+     */
+    public GameStatus getStatus() {
+        return getStatus(currentTurn);
+    }
+
+    /**
+     * Gets the status of a team in the current position. The result is
+     * computed once and reused until the board, its pieces or the turn
+     * change, so repeated status queries cost nothing.
+     *
+     * @param teamColor the team to get the status of
+     * @return the team's valid moves and check, checkmate and stalemate state
+     */
+    public GameStatus getStatus(TeamColor teamColor) {
+        GameStatus status = (teamColor == TeamColor.WHITE) ? whiteStatus : blackStatus;
+        if (status != null && status.board == board && status.version == board.getVersion()
+                && status.turn == currentTurn) {
+            return status;
         }
-        if (isInCheck(teamColor)) {
-            return false;
+
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        int count = validMoves(teamColor, moves);
+        status = new GameStatus(teamColor, moves, count, isKingInCheckOnBoard(board, teamColor),
+                board, board.getVersion(), currentTurn);
+        if (teamColor == TeamColor.WHITE) {
+            whiteStatus = status;
+        } else {
+            blackStatus = status;
         }
-        return !hasAnyValidMoves(teamColor);
+        return status;
     }
 
     /**
@@ -227,21 +324,15 @@ public class ChessGame {
         return this.board;
     }
 
-    private boolean hasAnyValidMoves(TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    Collection<ChessMove> moves = validMoves(position);
-                    if (!moves.isEmpty()) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+    /**
+     * @return the Zobrist key of the position: the board's key, combined
+     * with the side to move
+     */
+    public long zobristKey() {
+        long key = board.zobristKey();
+        return (currentTurn == TeamColor.BLACK) ? key ^ Zobrist.blackToMove() : key;
     }
+
     public void setGameOver(boolean gameOver) {
         this.gameOver = gameOver;
     }
@@ -257,11 +348,14 @@ public class ChessGame {
             return false;
         }
         ChessGame chessGame = (ChessGame) o;
+        if (board != null && chessGame.board != null && zobristKey() != chessGame.zobristKey()) {
+            return false;
+        }
         return Objects.equals(board, chessGame.board) && currentTurn == chessGame.currentTurn;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, currentTurn);
+        return board == null ? Objects.hashCode(currentTurn) : Long.hashCode(zobristKey());
     }
 }
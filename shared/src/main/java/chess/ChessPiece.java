@@ -11,6 +11,16 @@ import java.util.Objects;
  */
 public class ChessPiece {
 
+    private static final ChessPiece[] SHARED = new ChessPiece[Bitboards.PIECE_KINDS];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                SHARED[Bitboards.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor pieceColor;
     private final PieceType type;
 
@@ -19,6 +29,21 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Gets a shared instance of a piece. Pieces are immutable, so the board
+     * code uses these instead of allocating a new piece for every placement.
+     *
+     * @param pieceIndex the {@link Bitboards} index of the piece
+     * @return the shared piece for that index
+     */
+    public static ChessPiece of(int pieceIndex) {
+        return SHARED[pieceIndex];
+    }
+
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return SHARED[Bitboards.pieceIndex(pieceColor, type)];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -0,0 +1,182 @@
+package chess;
+
+/**
+ * Static evaluation of a position: material plus piece-square tables, with
+ * separate middlegame and endgame values blended by how much material is
+ * left (a tapered evaluation).
+ * <p>
+ * The sums behind the score are kept by {@link Bitboards} as pieces are
+ * placed, moved and taken back, so evaluating a position costs a few
+ * arithmetic operations instead of a scan of the board.
+ * {@link #evaluateFromScratch} computes the same score the slow way, for
+ * testing and benchmarking.
+ */
+public class Evaluation {
+
+    /** The game phase with all the starting pieces on the board. */
+    public static final int MAX_PHASE = 24;
+
+    // Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] MIDDLEGAME_VALUES = {0, 1025, 365, 337, 477, 82};
+    private static final int[] ENDGAME_VALUES = {0, 936, 297, 281, 512, 94};
+    private static final int[] PHASE_WEIGHTS = {0, 4, 1, 1, 2, 0};
+
+    // Piece-square tables from white's side, written as the board is seen
+    // from white: the first row is row 8 and the last is row 1
+    private static final int[] KING_MIDDLEGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20};
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20};
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0};
+    private static final int[] PAWN_MIDDLEGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            20, 20, 20, 20, 20, 20, 20, 20,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            0, 0, 0, 0, 0, 0, 0, 0};
+
+    // Indexed by Bitboards piece index, then square: the piece's material
+    // plus square value, positive for white and negative for black
+    static final int[][] MIDDLEGAME = new int[Bitboards.PIECE_KINDS][64];
+    static final int[][] ENDGAME = new int[Bitboards.PIECE_KINDS][64];
+    static final int[] PHASE = new int[Bitboards.PIECE_KINDS];
+
+    static {
+        int[][] middlegameTables = {KING_MIDDLEGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_MIDDLEGAME};
+        int[][] endgameTables = {KING_ENDGAME, QUEEN, BISHOP, KNIGHT, ROOK, PAWN_ENDGAME};
+        for (int type = 0; type < Bitboards.PIECE_TYPES; type++) {
+            int white = Bitboards.WHITE * Bitboards.PIECE_TYPES + type;
+            int black = Bitboards.BLACK * Bitboards.PIECE_TYPES + type;
+            for (int square = 0; square < 64; square++) {
+                // The tables list row 8 first, so white reads them flipped;
+                // black sees the board the other way up and reads them as written
+                MIDDLEGAME[white][square] = MIDDLEGAME_VALUES[type] + middlegameTables[type][square ^ 56];
+                ENDGAME[white][square] = ENDGAME_VALUES[type] + endgameTables[type][square ^ 56];
+                MIDDLEGAME[black][square] = -(MIDDLEGAME_VALUES[type] + middlegameTables[type][square]);
+                ENDGAME[black][square] = -(ENDGAME_VALUES[type] + endgameTables[type][square]);
+            }
+            PHASE[white] = PHASE_WEIGHTS[type];
+            PHASE[black] = PHASE_WEIGHTS[type];
+        }
+    }
+
+    /**
+     * @return the score of the position in centipawns for the team whose
+     * turn it is: positive when that team is ahead
+     */
+    public static int evaluate(ChessGame game) {
+        return evaluate(game.getBoard().getBitboards(), game.getTeamTurn());
+    }
+
+    /**
+     * @param bitboards the pieces to evaluate
+     * @param toMove    the team whose point of view the score is from
+     * @return the score in centipawns for toMove
+     */
+    public static int evaluate(Bitboards bitboards, ChessGame.TeamColor toMove) {
+        int score = taper(bitboards.middlegameScore(), bitboards.endgameScore(), bitboards.phase());
+        return toMove == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * Evaluates a position by scanning every piece, giving the same score as
+     * {@link #evaluate(Bitboards, ChessGame.TeamColor)}
+     */
+    public static int evaluateFromScratch(Bitboards bitboards, ChessGame.TeamColor toMove) {
+        int middlegame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int piece = 0; piece < Bitboards.PIECE_KINDS; piece++) {
+            long squares = bitboards.pieces(piece);
+            while (squares != 0) {
+                int square = Long.numberOfTrailingZeros(squares);
+                middlegame += MIDDLEGAME[piece][square];
+                endgame += ENDGAME[piece][square];
+                phase += PHASE[piece];
+                squares &= squares - 1;
+            }
+        }
+        int score = taper(middlegame, endgame, phase);
+        return toMove == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+
+    /**
+     * Converts a score into the chance of winning from it, for display
+     *
+     * @param centipawns a score for one team
+     * @return the team's expected result between 0 (a loss) and 1 (a win)
+     */
+    public static double winProbability(int centipawns) {
+        return 1 / (1 + Math.pow(10, -centipawns / 400.0));
+    }
+
+    /**
+     * Blends the middlegame and endgame scores by the material left. Extra
+     * promoted pieces can push the phase past the maximum, so it is capped.
+     */
+    private static int taper(int middlegame, int endgame, int phase) {
+        int clamped = Math.min(phase, MAX_PHASE);
+        return (middlegame * clamped + endgame * (MAX_PHASE - clamped)) / MAX_PHASE;
+    }
+}
@@ -0,0 +1,89 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation. Only the piece
+ * placement and side to move fields matter here: these rules have no
+ * castling or en passant, so those fields are ignored when reading and
+ * written as "-".
+ */
+public class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    /**
+     * Creates a game from a FEN string
+     *
+     * @param fen the position to load
+     * @return a new game in that position
+     * @throws IllegalArgumentException if the string is not valid FEN
+     */
+    public static ChessGame toGame(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("FEN needs 8 rows: " + fen);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : rows[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                    continue;
+                }
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col > 8) {
+                    throw new IllegalArgumentException("Bad FEN row '" + rows[i] + "': " + fen);
+                }
+                int team = Character.isUpperCase(c) ? Bitboards.WHITE : Bitboards.BLACK;
+                board.addPiece(Bitboards.square(row, col), ChessPiece.of(team * Bitboards.PIECE_TYPES + type));
+                col++;
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("Bad FEN row '" + rows[i] + "': " + fen);
+            }
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(fields.length > 1 && fields[1].equals("b") ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE);
+        return game;
+    }
+
+    /**
+     * @return the FEN string for a game's position
+     */
+    public static String fromGame(ChessGame game) {
+        StringBuilder fen = new StringBuilder();
+        ChessBoard board = game.getBoard();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(Bitboards.square(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+                fen.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w" : " b").append(" - - 0 1");
+        return fen.toString();
+    }
+}
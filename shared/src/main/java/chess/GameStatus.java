@@ -0,0 +1,84 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A snapshot of where one team stands in a position: its valid moves and
+ * whether it is in check, checkmate or stalemate. {@link ChessGame} computes
+ * it once per position and team and reuses it until the position changes.
+ */
+public class GameStatus {
+
+    private final ChessGame.TeamColor team;
+    private final int[] validMoves;
+    private final boolean inCheck;
+    private final boolean toMove;
+
+    // The position this snapshot describes
+    final ChessBoard board;
+    final long version;
+    final ChessGame.TeamColor turn;
+
+    GameStatus(ChessGame.TeamColor team, int[] validMoves, int count, boolean inCheck,
+               ChessBoard board, long version, ChessGame.TeamColor turn) {
+        this.team = team;
+        this.validMoves = Arrays.copyOf(validMoves, count);
+        this.inCheck = inCheck;
+        this.toMove = team == turn;
+        this.board = board;
+        this.version = version;
+        this.turn = turn;
+    }
+
+    /**
+     * @return the team this snapshot describes
+     */
+    public ChessGame.TeamColor getTeam() {
+        return team;
+    }
+
+    public boolean isInCheck() {
+        return inCheck;
+    }
+
+    public boolean isInCheckmate() {
+        return inCheck && validMoves.length == 0;
+    }
+
+    /**
+     * @return True if the team has no valid moves, is not in check, and it is
+     * the team's turn
+     */
+    public boolean isInStalemate() {
+        return toMove && !inCheck && validMoves.length == 0;
+    }
+
+    public boolean hasValidMoves() {
+        return validMoves.length > 0;
+    }
+
+    public int getValidMoveCount() {
+        return validMoves.length;
+    }
+
+    /**
+     * @param index which valid move to get, from 0 to getValidMoveCount() - 1
+     * @return the move as a {@link PackedMove} int
+     */
+    public int getValidMove(int index) {
+        return validMoves[index];
+    }
+
+    /**
+     * @return every valid move for the team
+     */
+    public Collection<ChessMove> getValidMoves() {
+        Collection<ChessMove> moves = new ArrayList<>(validMoves.length);
+        for (int move : validMoves) {
+            moves.add(PackedMove.toChessMove(move));
+        }
+        return moves;
+    }
+}
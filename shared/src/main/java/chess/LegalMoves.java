@@ -0,0 +1,196 @@
+package chess;
+
+/**
+ * Generates only legal moves, without trying each move on the board.
+ * <p>
+ * Once per position it finds the pieces giving check and the pieces pinned
+ * to the king. Out of check every move is allowed; in single check a move
+ * must capture the checker or block between it and the king; in double
+ * check only the king may move. A pinned piece may only move along the line
+ * through its king, and the king may only step to squares that are not
+ * attacked once it has left its own square. Every other piece's moves are
+ * then legal as generated, so they can even be counted with a popcount
+ * instead of being written out.
+ * <p>
+ * This needs the team to have exactly one king. Positions with no king or
+ * several, which only come up in tests, are left to
+ * {@link ChessGame#validMoves(ChessGame.TeamColor, int[])}'s make-and-test
+ * fallback.
+ */
+public class LegalMoves {
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+    private static final int[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.QUEEN.ordinal(), ChessPiece.PieceType.ROOK.ordinal(),
+            ChessPiece.PieceType.BISHOP.ordinal(), ChessPiece.PieceType.KNIGHT.ordinal()};
+
+    /**
+     * @return True if the team has exactly one king, which the methods of
+     * this class need
+     */
+    public static boolean isSupported(ChessBoard board, ChessGame.TeamColor team) {
+        return Long.bitCount(board.getBitboards().pieces(team, ChessPiece.PieceType.KING)) == 1;
+    }
+
+    /**
+     * Writes every legal move for a team into a move buffer as
+     * {@link PackedMove} ints
+     *
+     * @param moves the buffer to write into, at least
+     *              {@link PieceMovesCalculator#MAX_MOVES} long
+     * @return the number of moves written
+     */
+    public static int generate(ChessBoard board, ChessGame.TeamColor team, int[] moves) {
+        return walk(board.getBitboards(), Bitboards.team(team), moves, false);
+    }
+
+    /**
+     * @return the number of legal moves the team has, counted without
+     * writing any of them out
+     */
+    public static int count(ChessBoard board, ChessGame.TeamColor team) {
+        return walk(board.getBitboards(), Bitboards.team(team), null, false);
+    }
+
+    /**
+     * @return True if the team has at least one legal move, stopping at the
+     * first one found
+     */
+    public static boolean hasAny(ChessBoard board, ChessGame.TeamColor team) {
+        return walk(board.getBitboards(), Bitboards.team(team), null, true) > 0;
+    }
+
+    /**
+     * Finds the legal moves, writing them to moves or only counting them if
+     * moves is null
+     */
+    private static int walk(Bitboards bitboards, int team, int[] moves, boolean firstOnly) {
+        int king = bitboards.kingSquare(team);
+        int enemy = 1 - team;
+        long own = bitboards.occupancy(team);
+        long enemies = bitboards.occupancy(enemy);
+        long occupied = bitboards.occupied();
+        int count = 0;
+
+        // The king must not step along a slider's ray away from it, so it
+        // is lifted off the board when testing its targets
+        long withoutKing = occupied & ~(1L << king);
+        long kingTargets = AttackTables.kingAttacks(king) & ~own;
+        while (kingTargets != 0) {
+            int to = Long.numberOfTrailingZeros(kingTargets);
+            kingTargets &= kingTargets - 1;
+            if (!bitboards.isAttacked(to, enemy, withoutKing)) {
+                count = add(moves, count, king, to, enemies, false);
+                if (firstOnly) {
+                    return count;
+                }
+            }
+        }
+
+        long checkers = bitboards.attackersTo(king, occupied) & enemies;
+        if (Long.bitCount(checkers) > 1) {
+            return count;
+        }
+        long checkMask = checkers == 0 ? ~0L
+                : checkers | AttackTables.between(king, Long.numberOfTrailingZeros(checkers));
+        long pinned = pinned(bitboards, team, king, occupied);
+
+        long pieces = own & ~(1L << king);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int type = Bitboards.typeOf(bitboards.pieceAt(from));
+
+            long targets = type == PAWN ? pawnTargets(bitboards, from, team)
+                    : PieceMovesCalculator.attacks(TYPES[type], from, occupied) & ~own;
+            targets &= checkMask;
+            if ((pinned & (1L << from)) != 0) {
+                targets &= AttackTables.line(king, from);
+            }
+            if (targets == 0) {
+                continue;
+            }
+
+            boolean promotes = type == PAWN && (from >>> 3) == (team == Bitboards.WHITE ? 6 : 1);
+            if (moves == null) {
+                count += Long.bitCount(targets) * (promotes ? PROMOTION_TYPES.length : 1);
+                if (firstOnly) {
+                    return count;
+                }
+                continue;
+            }
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (promotes) {
+                    count = addPromotions(moves, count, from, to, enemies);
+                } else {
+                    count = add(moves, count, from, to, enemies, type == PAWN && Math.abs(to - from) == 16);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the team's pieces that stand alone between their king and an
+     * enemy slider that would otherwise attack it
+     */
+    private static long pinned(Bitboards bitboards, int team, int king, long occupied) {
+        int enemy = 1 - team;
+        long snipers = (AttackTables.rookAttacks(king, 0) & bitboards.straightSliders(enemy))
+                | (AttackTables.bishopAttacks(king, 0) & bitboards.diagonalSliders(enemy));
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = AttackTables.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & bitboards.occupancy(team);
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * @return the squares a pawn can move to: forward one or, from its first
+     * row, two squares onto empty squares, and diagonally onto enemies
+     */
+    private static long pawnTargets(Bitboards bitboards, int from, int team) {
+        int startRow = from >>> 3;
+        if (startRow == (team == Bitboards.WHITE ? 7 : 0)) {
+            return 0;
+        }
+        long empty = ~bitboards.occupied();
+        int direction = team == Bitboards.WHITE ? 8 : -8;
+        long targets = AttackTables.pawnAttacks(team, from) & bitboards.occupancy(1 - team);
+        long oneStep = (1L << (from + direction)) & empty;
+        if (oneStep != 0) {
+            targets |= oneStep;
+            if (startRow == (team == Bitboards.WHITE ? 1 : 6)) {
+                targets |= (1L << (from + 2 * direction)) & empty;
+            }
+        }
+        return targets;
+    }
+
+    private static int add(int[] moves, int count, int from, int to, long enemies, boolean doublePush) {
+        if (moves != null) {
+            int flags = ((enemies >>> to) & 1) != 0 ? PackedMove.FLAG_CAPTURE : 0;
+            if (doublePush) {
+                flags |= PackedMove.FLAG_DOUBLE_PUSH;
+            }
+            moves[count] = PackedMove.encode(from, to, -1, flags);
+        }
+        return count + 1;
+    }
+
+    private static int addPromotions(int[] moves, int count, int from, int to, long enemies) {
+        int flags = PackedMove.FLAG_PROMOTION | (((enemies >>> to) & 1) != 0 ? PackedMove.FLAG_CAPTURE : 0);
+        for (int type : PROMOTION_TYPES) {
+            moves[count++] = PackedMove.encode(from, to, type, flags);
+        }
+        return count;
+    }
+}
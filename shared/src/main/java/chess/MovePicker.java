@@ -0,0 +1,238 @@
+package chess;
+
+/**
+ * Hands out a team's moves one at a time, best guesses first, generating
+ * them a stage at a time so a search that cuts off early never pays for the
+ * moves it would not have looked at:
+ * <ol>
+ *     <li>the hash move, the best move stored for the position earlier</li>
+ *     <li>captures and promotions, most valuable victim first and least
+ *     valuable attacker breaking ties (MVV-LVA), holding back any that
+ *     lose material by {@link StaticExchange}</li>
+ *     <li>two killer moves, quiet moves that caused a cutoff at the same ply
+ *     elsewhere in the tree</li>
+ *     <li>the remaining quiet moves, ordered by a history table of how
+ *     often each caused a cutoff</li>
+ *     <li>the captures held back for losing material</li>
+ * </ol>
+ * A quiescence search can instead ask for only the captures that do not lose
+ * material, with {@link #resetCaptures}.
+ * Like {@link PieceMovesCalculator#generateMoves(ChessBoard, ChessGame.TeamColor, int[], int)},
+ * the moves may leave the king in danger, so the caller checks each one. A
+ * picker owns its buffers, so a search keeps one per ply and calls
+ * {@link #reset} for each position instead of allocating.
+ */
+public class MovePicker {
+
+    private static final int STAGE_HASH = 0;
+    private static final int STAGE_GENERATE_CAPTURES = 1;
+    private static final int STAGE_CAPTURES = 2;
+    private static final int STAGE_FIRST_KILLER = 3;
+    private static final int STAGE_SECOND_KILLER = 4;
+    private static final int STAGE_GENERATE_QUIETS = 5;
+    private static final int STAGE_QUIETS = 6;
+    private static final int STAGE_BAD_CAPTURES = 7;
+    private static final int STAGE_DONE = 8;
+
+    // Indexed by PieceType ordinal, in pawns. The king only ever attacks, so
+    // its high value just puts its captures last among equal victims.
+    private static final int[] VALUES = {10, 9, 3, 3, 5, 1};
+
+    private final int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+    private final int[] scores = new int[PieceMovesCalculator.MAX_MOVES];
+    private final int[] pieceMoves = new int[PieceMovesCalculator.MAX_PIECE_MOVES];
+    private final int[] badCaptures = new int[PieceMovesCalculator.MAX_MOVES];
+
+    private ChessBoard board;
+    private ChessGame.TeamColor team;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+    private int[] history;
+    private int stage = STAGE_DONE;
+    private int index;
+    private int count;
+    private int badCaptureCount;
+    private int badCaptureIndex;
+    private boolean capturesOnly;
+
+    /**
+     * Starts handing out the moves for a new position
+     *
+     * @param board        the board to generate moves on
+     * @param team         the team to move
+     * @param hashMove     a move to try first, or {@link PackedMove#NONE}. It is
+     *                     skipped if it is not a move in this position.
+     * @param firstKiller  a quiet move to try after the captures, or NONE
+     * @param secondKiller another quiet move to try after the captures, or NONE
+     * @param history      a score for each quiet move, indexed by
+     *                     {@link #historyIndex}, higher scores first
+     */
+    public void reset(ChessBoard board, ChessGame.TeamColor team, int hashMove, int firstKiller, int secondKiller,
+                      int[] history) {
+        this.board = board;
+        this.team = team;
+        this.hashMove = isPseudoLegal(hashMove) ? hashMove : PackedMove.NONE;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        this.history = history;
+        capturesOnly = false;
+        badCaptureCount = 0;
+        badCaptureIndex = 0;
+        stage = STAGE_HASH;
+    }
+
+    /**
+     * Starts handing out only the captures and promotions that do not lose
+     * material, best first, for a quiescence search
+     *
+     * @param board the board to generate moves on
+     * @param team  the team to move
+     */
+    public void resetCaptures(ChessBoard board, ChessGame.TeamColor team) {
+        reset(board, team, PackedMove.NONE, PackedMove.NONE, PackedMove.NONE, null);
+        capturesOnly = true;
+        stage = STAGE_GENERATE_CAPTURES;
+    }
+
+    /**
+     * @return the next move as a {@link PackedMove} int, or
+     * {@link PackedMove#NONE} once every move has been handed out
+     */
+    public int next() {
+        while (true) {
+            switch (stage) {
+                case STAGE_HASH -> {
+                    stage = STAGE_GENERATE_CAPTURES;
+                    if (hashMove != PackedMove.NONE) {
+                        return hashMove;
+                    }
+                }
+                case STAGE_GENERATE_CAPTURES -> {
+                    count = PieceMovesCalculator.generateCaptures(board, team, moves, 0);
+                    scoreCaptures();
+                    index = 0;
+                    stage = STAGE_CAPTURES;
+                }
+                case STAGE_CAPTURES -> {
+                    int move = pickBest();
+                    if (move == PackedMove.NONE) {
+                        stage = capturesOnly ? STAGE_DONE : STAGE_FIRST_KILLER;
+                    } else if (StaticExchange.isSafe(board, move)) {
+                        return move;
+                    } else if (!capturesOnly) {
+                        badCaptures[badCaptureCount++] = move;
+                    }
+                }
+                case STAGE_FIRST_KILLER -> {
+                    stage = STAGE_SECOND_KILLER;
+                    if (isUsableKiller(firstKiller)) {
+                        return firstKiller;
+                    }
+                }
+                case STAGE_SECOND_KILLER -> {
+                    stage = STAGE_GENERATE_QUIETS;
+                    if (secondKiller != firstKiller && isUsableKiller(secondKiller)) {
+                        return secondKiller;
+                    }
+                }
+                case STAGE_GENERATE_QUIETS -> {
+                    count = PieceMovesCalculator.generateQuiets(board, team, moves, 0);
+                    for (int i = 0; i < count; i++) {
+                        scores[i] = history[historyIndex(moves[i])];
+                    }
+                    index = 0;
+                    stage = STAGE_QUIETS;
+                }
+                case STAGE_QUIETS -> {
+                    int move = pickBest();
+                    if (move != PackedMove.NONE) {
+                        return move;
+                    }
+                    stage = STAGE_BAD_CAPTURES;
+                }
+                case STAGE_BAD_CAPTURES -> {
+                    if (badCaptureIndex < badCaptureCount) {
+                        return badCaptures[badCaptureIndex++];
+                    }
+                    stage = STAGE_DONE;
+                }
+                default -> {
+                    return PackedMove.NONE;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return where a move's score goes in a history table, which needs
+     * 4096 entries
+     */
+    public static int historyIndex(int move) {
+        return PackedMove.from(move) | (PackedMove.to(move) << 6);
+    }
+
+    private void scoreCaptures() {
+        Bitboards bitboards = board.getBitboards();
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int victim = bitboards.pieceAt(PackedMove.to(move));
+            int score = victim == Bitboards.EMPTY ? 0 : VALUES[Bitboards.typeOf(victim)] * 16;
+            int promotion = PackedMove.promotion(move);
+            if (promotion >= 0) {
+                score += VALUES[promotion] * 16;
+            }
+            scores[i] = score - VALUES[Bitboards.typeOf(bitboards.pieceAt(PackedMove.from(move)))];
+        }
+    }
+
+    /**
+     * Swaps the best scoring move left into the next slot and returns it,
+     * skipping moves an earlier stage already handed out. Selecting one at a
+     * time costs less than sorting when a cutoff comes early.
+     */
+    private int pickBest() {
+        while (index < count) {
+            int best = index;
+            for (int i = index + 1; i < count; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            int move = moves[best];
+            moves[best] = moves[index];
+            scores[best] = scores[index];
+            index++;
+            if (move != hashMove && (stage != STAGE_QUIETS || (move != firstKiller && move != secondKiller))) {
+                return move;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    private boolean isUsableKiller(int killer) {
+        return killer != PackedMove.NONE && killer != hashMove
+                && !PackedMove.isCapture(killer) && !PackedMove.isPromotion(killer) && isPseudoLegal(killer);
+    }
+
+    /**
+     * Killers and hash moves come from other positions, so check that the
+     * move is one the generator would make here
+     */
+    private boolean isPseudoLegal(int move) {
+        if (move == PackedMove.NONE) {
+            return false;
+        }
+        int piece = board.getBitboards().pieceAt(PackedMove.from(move));
+        if (piece == Bitboards.EMPTY || Bitboards.teamOf(piece) != Bitboards.team(team)) {
+            return false;
+        }
+        int pieceMoveCount = PieceMovesCalculator.generateMoves(board, PackedMove.from(move), pieceMoves, 0);
+        for (int i = 0; i < pieceMoveCount; i++) {
+            if (pieceMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,256 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Known opening moves and opening names, looked up by a position's
+ * {@link ChessGame#zobristKey()}. The book is built once from lines of
+ * moves into sorted arrays, and a lookup is a binary search over them that
+ * allocates nothing, so it answers in well under a microsecond.
+ * <p>
+ * Each line is {@code Name: e2e4 e7e5 ...}, played from the starting
+ * position. Every move along a line adds one to that move's weight in the
+ * position it is played from. A position takes the name of the line that
+ * ends there, or else of the shortest line through it. Because positions are
+ * keyed by hash, a line that transposes into another finds its moves too.
+ */
+public class OpeningBook {
+
+    private static final String RESOURCE = "/openings.txt";
+    private static volatile OpeningBook standard;
+
+    // One entry per position and move, sorted by key and then by weight,
+    // heaviest first
+    private final long[] keys;
+    private final int[] moves;
+    private final int[] weights;
+    // One entry per named position, sorted by key
+    private final long[] namedKeys;
+    private final String[] names;
+
+    private OpeningBook(long[] keys, int[] moves, int[] weights, long[] namedKeys, String[] names) {
+        this.keys = keys;
+        this.moves = moves;
+        this.weights = weights;
+        this.namedKeys = namedKeys;
+        this.names = names;
+    }
+
+    /**
+     * @return the book of common openings that ships with the game, loaded
+     * the first time it is asked for
+     */
+    public static OpeningBook standard() {
+        OpeningBook book = standard;
+        if (book == null) {
+            synchronized (OpeningBook.class) {
+                book = standard;
+                if (book == null) {
+                    try (InputStream in = OpeningBook.class.getResourceAsStream(RESOURCE)) {
+                        if (in == null) {
+                            throw new IllegalStateException("Missing opening book resource " + RESOURCE);
+                        }
+                        book = read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Could not read the opening book", e);
+                    }
+                    standard = book;
+                }
+            }
+        }
+        return book;
+    }
+
+    /**
+     * Builds a book from lines of the form {@code Name: e2e4 e7e5 ...}.
+     * Blank lines and lines starting with {@code #} are skipped.
+     *
+     * @throws IllegalArgumentException if a line is malformed or has a move
+     *                                  that is not valid where it is played
+     */
+    public static OpeningBook read(BufferedReader reader) throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int colon = line.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Line " + number + " needs a name, a colon and moves: " + line);
+            }
+            String[] movesText = line.substring(colon + 1).strip().split("\\s+");
+            String[] entry = new String[movesText.length + 1];
+            entry[0] = line.substring(0, colon).strip();
+            System.arraycopy(movesText, 0, entry, 1, movesText.length);
+            lines.add(entry);
+        }
+        // Shorter lines first, so a position is named for the line ending
+        // there before a longer line passing through can claim it
+        lines.sort(Comparator.comparingInt(entry -> entry.length));
+
+        TreeMap<Long, Map<Integer, Integer>> positions = new TreeMap<>();
+        Map<Long, String> named = new HashMap<>();
+        int[] legal = new int[PieceMovesCalculator.MAX_MOVES];
+        for (String[] entry : lines) {
+            ChessGame game = new ChessGame();
+            for (int i = 1; i < entry.length; i++) {
+                int move = findMove(game, entry[i], legal);
+                if (move == PackedMove.NONE) {
+                    throw new IllegalArgumentException("Move " + entry[i] + " is not valid in " + entry[0]);
+                }
+                positions.computeIfAbsent(game.zobristKey(), key -> new LinkedHashMap<>())
+                        .merge(move, 1, Integer::sum);
+                game.makeMove(move);
+                named.putIfAbsent(game.zobristKey(), entry[0]);
+            }
+        }
+        return build(positions, named);
+    }
+
+    private static int findMove(ChessGame game, String uci, int[] legal) {
+        int count = game.validMoves(game.getTeamTurn(), legal);
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.toUci(legal[i]).equals(uci)) {
+                return legal[i];
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    private static OpeningBook build(TreeMap<Long, Map<Integer, Integer>> positions, Map<Long, String> named) {
+        int size = positions.values().stream().mapToInt(Map::size).sum();
+        long[] keys = new long[size];
+        int[] moves = new int[size];
+        int[] weights = new int[size];
+        int next = 0;
+        for (Map.Entry<Long, Map<Integer, Integer>> position : positions.entrySet()) {
+            List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(position.getValue().entrySet());
+            entries.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed());
+            for (Map.Entry<Integer, Integer> entry : entries) {
+                keys[next] = position.getKey();
+                moves[next] = entry.getKey();
+                weights[next] = entry.getValue();
+                next++;
+            }
+        }
+
+        long[] namedKeys = named.keySet().stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(namedKeys);
+        String[] names = new String[namedKeys.length];
+        for (int i = 0; i < namedKeys.length; i++) {
+            names[i] = named.get(namedKeys[i]);
+        }
+        return new OpeningBook(keys, moves, weights, namedKeys, names);
+    }
+
+    /**
+     * @return the index of the first entry with the key, or -1
+     */
+    private static int find(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < sorted.length && sorted[low] == key ? low : -1;
+    }
+
+    /**
+     * Writes the book moves for a position, heaviest first
+     *
+     * @param moves   the buffer for the {@link PackedMove}s
+     * @param weights the buffer for each move's weight, or null
+     * @return the number of book moves, which may be more than the buffers
+     * hold; only as many as fit are written
+     */
+    public int bookMoves(ChessGame game, int[] moves, int[] weights) {
+        int first = find(keys, game.zobristKey());
+        if (first < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = first; i < keys.length && keys[i] == keys[first]; i++, count++) {
+            if (count < moves.length) {
+                moves[count] = this.moves[i];
+                if (weights != null) {
+                    weights[count] = this.weights[i];
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the heaviest book move for a position, or
+     * {@link PackedMove#NONE} if the position is not in the book
+     */
+    public int bestMove(ChessGame game) {
+        int first = find(keys, game.zobristKey());
+        return first < 0 ? PackedMove.NONE : moves[first];
+    }
+
+    /**
+     * Picks a book move at random, each in proportion to its weight, so play
+     * from the book varies between games
+     *
+     * @return a book move for the position, or {@link PackedMove#NONE}
+     */
+    public int pickMove(ChessGame game, RandomGenerator random) {
+        int first = find(keys, game.zobristKey());
+        if (first < 0) {
+            return PackedMove.NONE;
+        }
+        int total = 0;
+        int end = first;
+        while (end < keys.length && keys[end] == keys[first]) {
+            total += weights[end++];
+        }
+        int pick = random.nextInt(total);
+        for (int i = first; i < end; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return moves[i];
+            }
+        }
+        return moves[first];
+    }
+
+    /**
+     * @return the name of the opening the position belongs to, or null if
+     * it is not in the book
+     */
+    public String openingName(ChessGame game) {
+        int index = find(namedKeys, game.zobristKey());
+        return index < 0 ? null : names[index];
+    }
+
+    /**
+     * @return the number of position and move entries in the book
+     */
+    public int size() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,109 @@
+package chess;
+
+/**
+ * Encodes chess moves as plain ints so move generation can fill reusable
+ * buffers without allocating a {@link ChessMove} per move.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square (square indices
+ * as in {@link Bitboards}). Bits 12-14 hold the promotion piece as its
+ * {@link ChessPiece.PieceType} ordinal plus one, or zero for no promotion.
+ * The remaining bits hold the FLAG_ constants.
+ */
+public class PackedMove {
+
+    /** No move. Never produced by the generator, since a move cannot start and end on the same square. */
+    public static final int NONE = 0;
+
+    public static final int FLAG_CAPTURE = 1;
+    public static final int FLAG_DOUBLE_PUSH = 2;
+    public static final int FLAG_PROMOTION = 4;
+
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int FLAGS_SHIFT = 15;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    /**
+     * @param from      the start square
+     * @param to        the end square
+     * @param promotion the ordinal of the piece type to promote to, or -1 for none
+     * @param flags     any of the FLAG_ constants
+     * @return the packed move
+     */
+    public static int encode(int from, int to, int promotion, int flags) {
+        return from | (to << TO_SHIFT) | ((promotion + 1) << PROMOTION_SHIFT) | (flags << FLAGS_SHIFT);
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & 63;
+    }
+
+    /**
+     * @return the ordinal of the piece type to promote to, or -1 for none
+     */
+    public static int promotion(int move) {
+        return ((move >>> PROMOTION_SHIFT) & 7) - 1;
+    }
+
+    public static int flags(int move) {
+        return move >>> FLAGS_SHIFT;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flags(move) & FLAG_CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (flags(move) & FLAG_PROMOTION) != 0;
+    }
+
+    /**
+     * @return whether the two moves have the same squares and promotion,
+     * ignoring flags
+     */
+    public static boolean sameMove(int a, int b) {
+        return ((a ^ b) & ((1 << FLAGS_SHIFT) - 1)) == 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        int promotion = promotion(move);
+        return new ChessMove(Bitboards.position(from(move)), Bitboards.position(to(move)),
+                promotion < 0 ? null : TYPES[promotion]);
+    }
+
+    /**
+     * Packs a move without flags. Use {@link #sameMove} to compare it against
+     * generated moves.
+     */
+    public static int fromChessMove(ChessMove move) {
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        return encode(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                promotion == null ? -1 : promotion.ordinal(), 0);
+    }
+
+    public static String toString(int move) {
+        return toChessMove(move).toString();
+    }
+
+    /**
+     * @return the move in coordinate notation, such as "e2e4" or "a7a8q"
+     */
+    public static String toUci(int move) {
+        StringBuilder uci = new StringBuilder(5);
+        appendSquare(uci, from(move));
+        appendSquare(uci, to(move));
+        int promotion = promotion(move);
+        if (promotion >= 0) {
+            uci.append("kqbnrp".charAt(promotion));
+        }
+        return uci.toString();
+    }
+
+    private static void appendSquare(StringBuilder uci, int square) {
+        uci.append((char) ('a' + (square & 7))).append((char) ('1' + (square >>> 3)));
+    }
+}
@@ -0,0 +1,159 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of a game tree like {@link Perft}, splitting the
+ * work across a {@link ForkJoinPool}. The top plies of the tree are split
+ * into one task per move, each on its own copy of the game, and every task
+ * counts the last few plies with a single-threaded Perft.
+ */
+public class ParallelPerft {
+
+    /** Subtrees this shallow are counted by one thread instead of being split further. */
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param pool the pool to count on
+     */
+    public ParallelPerft(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ParallelPerft() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts the leaf nodes to a depth and times it
+     *
+     * @param game the position to count from. It is copied, never modified.
+     */
+    public Perft.Result run(ChessGame game, int depth) {
+        long start = System.nanoTime();
+        long nodes = count(game, depth);
+        return new Perft.Result(nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * @param game the position to count from. It is copied, never modified.
+     * @return the number of leaf nodes of the game tree to the given depth
+     */
+    public long count(ChessGame game, int depth) {
+        return pool.invoke(new CountTask(new ChessGame(game), depth));
+    }
+
+    /**
+     * @param game the position to count from. It is copied, never modified.
+     * @return the leaf count under each root move, keyed by the move in
+     * coordinate notation, in the same order as {@link Perft#divide}
+     */
+    public Map<String, Long> divide(ChessGame game, int depth) {
+        return pool.invoke(new DivideTask(new ChessGame(game), Math.max(depth, 1)));
+    }
+
+    /**
+     * Creates one task per valid move in a position, each on its own copy of
+     * the game with the move played
+     */
+    private static List<CountTask> splitMoves(ChessGame game, int depth) {
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        int count = game.validMoves(game.getTeamTurn(), moves);
+        List<CountTask> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ChessGame child = new ChessGame(game);
+            child.makeMove(moves[i]);
+            tasks.add(new CountTask(child, depth - 1, moves[i]));
+        }
+        return tasks;
+    }
+
+    private static class CountTask extends RecursiveTask<Long> {
+        private final ChessGame game;
+        private final int depth;
+        private final int move;
+
+        CountTask(ChessGame game, int depth) {
+            this(game, depth, PackedMove.NONE);
+        }
+
+        /**
+         * @param move the move that led to this position, used to key divide
+         *             results
+         */
+        CountTask(ChessGame game, int depth, int move) {
+            this.game = game;
+            this.depth = depth;
+            this.move = move;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SEQUENTIAL_DEPTH) {
+                return new Perft(game).count(depth);
+            }
+            long nodes = 0;
+            for (CountTask task : invokeAll(splitMoves(game, depth))) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    private static class DivideTask extends RecursiveTask<Map<String, Long>> {
+        private final ChessGame game;
+        private final int depth;
+
+        DivideTask(ChessGame game, int depth) {
+            this.game = game;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Map<String, Long> compute() {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (CountTask task : invokeAll(splitMoves(game, depth))) {
+                counts.put(PackedMove.toUci(task.move), task.join());
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Counts a position once on each pool size from one thread up to every
+     * core, doubling each time, and prints how the speed scales
+     *
+     * @param game  the position to count from
+     * @param depth the depth to count to
+     */
+    public static void printScaling(ChessGame game, int depth) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long baseline = 0;
+        System.out.printf("%7s %14s %10s %14s %8s %10s%n",
+                "threads", "nodes", "ms", "nps", "speedup", "efficiency");
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                Perft.Result result = new ParallelPerft(pool).run(game, depth);
+                if (threads == 1) {
+                    baseline = result.nanos();
+                }
+                double speedup = (double) baseline / result.nanos();
+                System.out.printf("%7d %,14d %,10d %,14d %7.2fx %9.0f%%%n", threads, result.nodes(),
+                        result.nanos() / 1_000_000, result.nodesPerSecond(), speedup, 100 * speedup / threads);
+            } finally {
+                pool.shutdown();
+            }
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Performance test for the move generator: counts the leaf nodes of the game
+ * tree to a fixed depth using {@link ChessGame#validMoves(ChessGame.TeamColor, int[])}
+ * and {@link ChessGame#makeMove(int)}. The counts check the generator's
+ * correctness against known values and the timing measures its speed.
+ * <p>
+ * Run with {@code suite [maxDepth]} to check the reference positions, with
+ * {@code <depth> [fen]} to print a divide (the node count under each root
+ * move) for one position, or with {@code parallel <depth> [fen]} to see how
+ * {@link ParallelPerft} scales across cores.
+ */
+public class Perft {
+
+    /**
+     * A position with known leaf counts
+     *
+     * @param counts the leaf count at depth 1, 2, ...
+     */
+    public record ReferencePosition(String name, String fen, long... counts) {
+    }
+
+    /**
+     * Standard perft positions. These rules have no castling or en passant,
+     * so castling rights are stripped from the FENs and the counts come from
+     * an independent generator with the same rules. Where neither rule can
+     * come up they match the published counts.
+     */
+    public static final ReferencePosition[] REFERENCE_POSITIONS = {
+            new ReferencePosition("start", Fen.START_POSITION, 20, 400, 8902, 197281),
+            new ReferencePosition("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+                    46, 1865, 86585),
+            new ReferencePosition("endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2810, 43087),
+            new ReferencePosition("promotions", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w - - 0 1",
+                    6, 258, 9217),
+            new ReferencePosition("discovered-check", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w - - 1 8",
+                    43, 1452, 59922),
+            new ReferencePosition("middlegame",
+                    "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46, 2079, 89890),
+    };
+
+    /**
+     * The outcome of a perft run
+     *
+     * @param nodes the number of leaf nodes counted
+     * @param nanos how long counting took
+     */
+    public record Result(long nodes, long nanos) {
+        public long nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+        }
+    }
+
+    private final ChessGame game;
+    private int[][] moves = new int[0][];
+
+    /**
+     * @param game the position to count from. It is played through in place
+     *             and left as it was when counting finishes.
+     */
+    public Perft(ChessGame game) {
+        this.game = game;
+    }
+
+    /**
+     * Counts the leaf nodes to a depth and times it
+     */
+    public Result run(int depth) {
+        long start = System.nanoTime();
+        long nodes = count(depth);
+        return new Result(nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the number of leaf nodes of the game tree to the given depth
+     */
+    public long count(int depth) {
+        ensureBuffers(depth);
+        return count(depth, 0);
+    }
+
+    /**
+     * @return the leaf count under each root move, keyed by the move in
+     * coordinate notation
+     */
+    public Map<String, Long> divide(int depth) {
+        ensureBuffers(Math.max(depth, 1));
+        Map<String, Long> counts = new LinkedHashMap<>();
+        int[] rootMoves = moves[0];
+        int count = game.validMoves(game.getTeamTurn(), rootMoves);
+        for (int i = 0; i < count; i++) {
+            long undo = game.makeMove(rootMoves[i]);
+            counts.put(PackedMove.toUci(rootMoves[i]), depth <= 1 ? 1 : count(depth - 1, 1));
+            game.unmakeMove(rootMoves[i], undo);
+        }
+        return counts;
+    }
+
+    private long count(int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (depth == 1) {
+            return game.countValidMoves(game.getTeamTurn());
+        }
+        int[] plyMoves = moves[ply];
+        int count = game.validMoves(game.getTeamTurn(), plyMoves);
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            long undo = game.makeMove(plyMoves[i]);
+            nodes += count(depth - 1, ply + 1);
+            game.unmakeMove(plyMoves[i], undo);
+        }
+        return nodes;
+    }
+
+    private void ensureBuffers(int depth) {
+        if (moves.length < depth) {
+            moves = new int[depth][PieceMovesCalculator.MAX_MOVES];
+        }
+    }
+
+    /**
+     * Checks every reference position to a depth
+     *
+     * @param maxDepth the deepest count to check in each position
+     * @return True if every count matched
+     */
+    public static boolean runSuite(int maxDepth) {
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalNanos = 0;
+        for (ReferencePosition position : REFERENCE_POSITIONS) {
+            Perft perft = new Perft(Fen.toGame(position.fen()));
+            for (int depth = 1; depth <= Math.min(maxDepth, position.counts().length); depth++) {
+                Result result = perft.run(depth);
+                long expected = position.counts()[depth - 1];
+                boolean ok = result.nodes() == expected;
+                passed &= ok;
+                totalNodes += result.nodes();
+                totalNanos += result.nanos();
+                System.out.printf("%-17s depth %d: %,12d nodes %,12d nps  %s%n", position.name(), depth,
+                        result.nodes(), result.nodesPerSecond(), ok ? "ok" : "FAILED, expected " + expected);
+            }
+        }
+        System.out.printf("Total: %,d nodes in %,d ms (%,d nps)%n", totalNodes, totalNanos / 1_000_000,
+                new Result(totalNodes, totalNanos).nodesPerSecond());
+        return passed;
+    }
+
+    /**
+     * @return the FEN made of the arguments from an index on, which a shell
+     * splits at its spaces, or the starting position if there are none
+     */
+    private static String fenArgument(String[] args, int from) {
+        return args.length > from ? String.join(" ", Arrays.copyOfRange(args, from, args.length))
+                : Fen.START_POSITION;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0 || args[0].equals("suite")) {
+            int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MAX_VALUE;
+            if (!runSuite(maxDepth)) {
+                System.exit(1);
+            }
+            return;
+        }
+        if (args[0].equals("parallel")) {
+            ParallelPerft.printScaling(Fen.toGame(fenArgument(args, 2)), Integer.parseInt(args[1]));
+            return;
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        Perft perft = new Perft(Fen.toGame(fenArgument(args, 1)));
+        long start = System.nanoTime();
+        long total = 0;
+        for (Map.Entry<String, Long> entry : perft.divide(depth).entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            total += entry.getValue();
+        }
+        Result result = new Result(total, System.nanoTime() - start);
+        System.out.printf("%nNodes: %,d%nTime: %,d ms%nNPS: %,d%n", total, result.nanos() / 1_000_000,
+                result.nodesPerSecond());
+    }
+}
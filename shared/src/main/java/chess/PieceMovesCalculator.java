@@ -5,153 +5,187 @@ import java.util.HashSet;
 
 public class PieceMovesCalculator {
 
-    public static Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition position) {
-        ChessPiece piece = board.getPiece(position);
-        if (piece == null) {
-            return new HashSet<>();
-        }
-
-        return switch (piece.getPieceType()) {
-            case KING -> kingMovesCalculator(board, position);
-            case QUEEN -> queenMovesCalculator(board, position);
-            case BISHOP -> bishopMovesCalculator(board, position);
-            case KNIGHT -> knightMovesCalculator(board, position);
-            case ROOK -> rookMovesCalculator(board, position);
-            case PAWN -> pawnMovesCalculator(board, position);
-        };
-    }
+    /** The most moves a single piece can have: a queen in the middle of an open board. */
+    public static final int MAX_PIECE_MOVES = 27;
+    /** More than the number of pseudo-legal moves any reachable position can have. */
+    public static final int MAX_MOVES = 256;
 
-    private static Collection<ChessMove> pawnMovesCalculator(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> moves =new HashSet<>();
-        ChessPiece piece = board.getPiece(position);
-
-        int direction = (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? 1 : -1;
-        int initialRow = (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? 2 : 7;
-        int promotionRow = (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? 8 : 1;
-
-        int startRow = position.getRow();
-        int startCol = position.getColumn();
-
-        ChessPosition oneStep = new ChessPosition(startRow + direction, startCol);
-        if (isWithinBoard(oneStep)) {
-            ChessPiece occupyingPiece = board.getPiece(oneStep);
-            if (occupyingPiece == null) {
-                if (oneStep.getRow() == promotionRow) {
-                    addPromotionalMoves(position, oneStep, moves);
-                } else {
-                    moves.add(new ChessMove(position, oneStep, null));
-                }
+    // Which kinds of move the private generators write
+    private static final int CAPTURES = 1;
+    private static final int QUIETS = 2;
+    private static final int ALL = CAPTURES | QUIETS;
 
-                if (startRow == initialRow) {
-                    ChessPosition twoStep = new ChessPosition(startRow + 2 * direction, startCol);
-                    ChessPiece secondOccupyingPiece = board.getPiece(twoStep);
-                    if (secondOccupyingPiece == null) {
-                        moves.add(new ChessMove(position, twoStep, null));
-                    }
-                }
-            }
-        }
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final int[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.QUEEN.ordinal(), ChessPiece.PieceType.ROOK.ordinal(),
+            ChessPiece.PieceType.BISHOP.ordinal(), ChessPiece.PieceType.KNIGHT.ordinal()};
 
-        int[] captureCols = {startCol + 1, startCol -1};
-        for (int col : captureCols) {
-            ChessPosition capturePos = new ChessPosition(startRow + direction, col);
-            if (isWithinBoard(capturePos)) {
-                ChessPiece occupyingPiece = board.getPiece(capturePos);
-                if (occupyingPiece != null && occupyingPiece.getTeamColor() != piece.getTeamColor()) {
-                    if (capturePos.getRow() == promotionRow) {
-                        addPromotionalMoves(position, capturePos, moves);
-                    } else {
-                        moves.add(new ChessMove(position, capturePos, null));
-                    }
-                }
-            }
+    public static Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition position) {
+        int[] moves = new int[MAX_PIECE_MOVES];
+        int count = generateMoves(board, Bitboards.square(position), moves, 0);
+        Collection<ChessMove> result = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            result.add(PackedMove.toChessMove(moves[i]));
         }
+        return result;
+    }
 
-        return moves;
+    /**
+     * Writes the moves of every piece on a team into a move buffer as
+     * {@link PackedMove} ints. Like {@link #calculateMoves}, this does not take
+     * into account moves that leave the king in danger.
+     *
+     * @param board the board to generate moves on
+     * @param team  the team to generate moves for
+     * @param moves the buffer to write into, at least {@link #MAX_MOVES} long
+     * @param count the number of moves already in the buffer
+     * @return the number of moves in the buffer afterwards
+     */
+    public static int generateMoves(ChessBoard board, ChessGame.TeamColor team, int[] moves, int count) {
+        return generateTeam(board.getBitboards(), Bitboards.team(team), ALL, moves, count);
     }
 
-    private static void addPromotionalMoves(ChessPosition position, ChessPosition endPosition, Collection<ChessMove> moves) {
-        moves.add(new ChessMove(position, endPosition, ChessPiece.PieceType.ROOK));
-        moves.add(new ChessMove(position, endPosition, ChessPiece.PieceType.KNIGHT));
-        moves.add(new ChessMove(position, endPosition, ChessPiece.PieceType.QUEEN));
-        moves.add(new ChessMove(position, endPosition, ChessPiece.PieceType.BISHOP));
+    /**
+     * Writes a team's captures and promotions into a move buffer, like
+     * {@link #generateMoves(ChessBoard, ChessGame.TeamColor, int[], int)}.
+     * Together with {@link #generateQuiets} this writes the same moves as
+     * generateMoves, so a search can look at captures before paying to
+     * generate the rest.
+     */
+    public static int generateCaptures(ChessBoard board, ChessGame.TeamColor team, int[] moves, int count) {
+        return generateTeam(board.getBitboards(), Bitboards.team(team), CAPTURES, moves, count);
     }
 
-    private static Collection<ChessMove> knightMovesCalculator(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> moves = new HashSet<>();
-        ChessPiece piece = board.getPiece(position);
-        int [][] direction = {{2,1},{2,-1},{-2,1},{-2,-1},{1,2},{1,-2},{-1,2},{-1,-2}};
-        return getMoves(board, position, moves, piece, direction);
+    /**
+     * Writes a team's moves that neither capture nor promote into a move
+     * buffer, see {@link #generateCaptures}
+     */
+    public static int generateQuiets(ChessBoard board, ChessGame.TeamColor team, int[] moves, int count) {
+        return generateTeam(board.getBitboards(), Bitboards.team(team), QUIETS, moves, count);
     }
 
-    private static Collection<ChessMove> getMoves(ChessBoard brd, ChessPosition pos, Collection<ChessMove> mov, ChessPiece piece, int[][] dirs) {
-        for (int[] dir : dirs) {
-            int endRow = pos.getRow() + dir[0];
-            int endCol = pos.getColumn() + dir[1];
-            ChessPosition endPosition = new ChessPosition(endRow, endCol);
-            if (isWithinBoard(endPosition)) {
-                ChessPiece occupyingPiece = brd.getPiece(endPosition);
-                if (occupyingPiece == null || occupyingPiece.getTeamColor() != piece.getTeamColor()) {
-                    mov.add(new ChessMove(pos, endPosition, null));
-                }
-            }
+    private static int generateTeam(Bitboards bitboards, int team, int kinds, int[] moves, int count) {
+        long pieces = bitboards.occupancy(team);
+        while (pieces != 0) {
+            count = generate(bitboards, Long.numberOfTrailingZeros(pieces), kinds, moves, count);
+            pieces &= pieces - 1;
         }
-        return mov;
+        return count;
     }
 
-    private static Collection<ChessMove> kingMovesCalculator(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> moves = new HashSet<>();
-        ChessPiece piece = board.getPiece(position);
-        int [][] direction = {{1,0},{-1,0},{0,1},{0,-1},{1,1},{1,-1},{-1,1},{-1,-1}};
-        return getMoves(board, position, moves, piece, direction);
+    /**
+     * Writes the moves of the piece on a square into a move buffer as
+     * {@link PackedMove} ints
+     *
+     * @param board the board to generate moves on
+     * @param from  the square of the piece to move, see {@link Bitboards}
+     * @param moves the buffer to write into
+     * @param count the number of moves already in the buffer
+     * @return the number of moves in the buffer afterwards
+     */
+    public static int generateMoves(ChessBoard board, int from, int[] moves, int count) {
+        return generate(board.getBitboards(), from, ALL, moves, count);
     }
 
-    private static Collection<ChessMove> queenMovesCalculator(ChessBoard board, ChessPosition position) {
-        Collection<ChessMove> moves = new HashSet<>();
-        moves.addAll(bishopMovesCalculator(board, position));
-        moves.addAll(rookMovesCalculator(board, position));
-        return moves;
+    private static int generate(Bitboards bitboards, int from, int kinds, int[] moves, int count) {
+        int piece = bitboards.pieceAt(from);
+        if (piece == Bitboards.EMPTY) {
+            return count;
+        }
+
+        int team = Bitboards.teamOf(piece);
+        ChessPiece.PieceType type = TYPES[Bitboards.typeOf(piece)];
+        if (type == ChessPiece.PieceType.PAWN) {
+            return pawnMoves(bitboards, from, team, kinds, moves, count);
+        }
+        long enemies = bitboards.occupancy(1 - team);
+        long targets = attacks(type, from, bitboards.occupied()) & ~bitboards.occupancy(team);
+        if ((kinds & CAPTURES) == 0) {
+            targets &= ~enemies;
+        }
+        if ((kinds & QUIETS) == 0) {
+            targets &= enemies;
+        }
+        return addMoves(from, targets, enemies, moves, count);
     }
 
-    private static Collection<ChessMove> rookMovesCalculator(ChessBoard board, ChessPosition position) {
-        int[][] direction = {{1,0},{-1,0},{0,1},{0,-1}};
-        return calculateSlidingMoves(board, position, direction);
+    /**
+     * @return the squares a piece of the given type attacks from a square,
+     * for any piece type but a pawn
+     */
+    static long attacks(ChessPiece.PieceType type, int square, long occupied) {
+        return switch (type) {
+            case KING -> AttackTables.kingAttacks(square);
+            case QUEEN -> AttackTables.queenAttacks(square, occupied);
+            case BISHOP -> AttackTables.bishopAttacks(square, occupied);
+            case KNIGHT -> AttackTables.knightAttacks(square);
+            case ROOK -> AttackTables.rookAttacks(square, occupied);
+            case PAWN -> throw new IllegalArgumentException("Pawn attacks depend on team");
+        };
     }
 
-    private static Collection<ChessMove> bishopMovesCalculator(ChessBoard board, ChessPosition position) {
-        int[][] direction = {{1,1},{1,-1},{-1,1},{-1,-1}};
-        return calculateSlidingMoves(board, position, direction);
+    private static int addMoves(int from, long targets, long enemies, int[] moves, int count) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int flags = ((enemies >>> to) & 1) != 0 ? PackedMove.FLAG_CAPTURE : 0;
+            moves[count++] = PackedMove.encode(from, to, -1, flags);
+            targets &= targets - 1;
+        }
+        return count;
     }
 
-    private static Collection<ChessMove> calculateSlidingMoves(ChessBoard board, ChessPosition position, int[][] direction) {
-        Collection<ChessMove> moves =new HashSet<>();
-        ChessPiece piece = board.getPiece(position);
-        for (int[] dir: direction) {
-            int row = position.getRow();
-            int col = position.getColumn();
-            while (true) {
-                row += dir[0];
-                col += dir[1];
-                ChessPosition endPosition = new ChessPosition(row, col);
-                if (!isWithinBoard(endPosition)) {
-                    break;
-                }
-                ChessPiece occupyingPiece = board.getPiece(endPosition);
-                if (occupyingPiece == null) {
-                    moves.add(new ChessMove(position, endPosition, null));
-                } else {
-                    if (occupyingPiece.getTeamColor() != piece.getTeamColor()) {
-                        moves.add(new ChessMove(position, endPosition, null));
-                    } break;
+    private static int pawnMoves(Bitboards bitboards, int from, int team, int kinds, int[] moves, int count) {
+        int direction = (team == Bitboards.WHITE) ? 8 : -8;
+        int initialRow = (team == Bitboards.WHITE) ? 1 : 6;
+        int promotionRow = (team == Bitboards.WHITE) ? 7 : 0;
+
+        int startRow = from >>> 3;
+        if (startRow == promotionRow) {
+            return count;
+        }
+        boolean promotes = startRow + Integer.signum(direction) == promotionRow;
+        long occupied = bitboards.occupied();
+
+        // Promotions go with the captures, since they change the material too
+        boolean captures = (kinds & CAPTURES) != 0;
+        boolean quiets = (kinds & QUIETS) != 0;
+        int oneStep = from + direction;
+        if (((occupied >>> oneStep) & 1) == 0) {
+            if (promotes) {
+                if (captures) {
+                    count = addPromotionalMoves(from, oneStep, 0, moves, count);
                 }
+            } else if (quiets) {
+                moves[count++] = PackedMove.encode(from, oneStep, -1, 0);
+            }
+
+            int twoStep = oneStep + direction;
+            if (quiets && startRow == initialRow && ((occupied >>> twoStep) & 1) == 0) {
+                moves[count++] = PackedMove.encode(from, twoStep, -1, PackedMove.FLAG_DOUBLE_PUSH);
+            }
+        }
+        if (!captures) {
+            return count;
+        }
+
+        long targets = AttackTables.pawnAttacks(team, from) & bitboards.occupancy(1 - team);
+        while (targets != 0) {
+            int capture = Long.numberOfTrailingZeros(targets);
+            if (promotes) {
+                count = addPromotionalMoves(from, capture, PackedMove.FLAG_CAPTURE, moves, count);
+            } else {
+                moves[count++] = PackedMove.encode(from, capture, -1, PackedMove.FLAG_CAPTURE);
             }
+            targets &= targets - 1;
         }
 
-        return moves;
+        return count;
     }
 
-    private static boolean isWithinBoard(ChessPosition endPosition) {
-        return endPosition.getRow() >= 1 && endPosition.getRow() <= 8 &&
-                endPosition.getColumn() >= 1 && endPosition.getColumn() <= 8;
+    private static int addPromotionalMoves(int from, int to, int flags, int[] moves, int count) {
+        for (int type : PROMOTION_TYPES) {
+            moves[count++] = PackedMove.encode(from, to, type, flags | PackedMove.FLAG_PROMOTION);
+        }
+        return count;
     }
 }
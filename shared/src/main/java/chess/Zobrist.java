@@ -0,0 +1,39 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key for
+ * every piece on its square, plus {@link #blackToMove()} when it is black's
+ * turn, so moving a piece updates the key with two or three XORs.
+ * <p>
+ * The keys come from a fixed seed and are the same in every run, so keys can
+ * be stored on disk, for example in an opening book.
+ */
+public class Zobrist {
+
+    private static final long SEED = 0x5EED_C240_0000_0001L;
+    private static final long[] PIECE_SQUARE = new long[Bitboards.PIECE_KINDS * 64];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < PIECE_SQUARE.length; i++) {
+            PIECE_SQUARE[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    /**
+     * @param pieceIndex the {@link Bitboards} index of the piece
+     * @param square     the square it stands on
+     * @return the key for that piece on that square
+     */
+    public static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex * 64 + square];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
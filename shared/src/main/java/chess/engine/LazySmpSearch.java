@@ -0,0 +1,175 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A multi-threaded search using Lazy SMP: every thread runs its own
+ * {@link Search} of the same root, and they share one
+ * {@link TranspositionTable}, so each thread's results cut off the others'
+ * searches. The main thread searches every depth while the helpers skip
+ * some, which staggers them across depths.
+ * <p>
+ * The calling thread acts as the main thread, and the helpers run on a pool
+ * owned by this object, so close it when done. Only one search may run at a
+ * time.
+ */
+public class LazySmpSearch implements AutoCloseable {
+
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final ExecutorService helpers;
+    private volatile AtomicBoolean stopSignal = new AtomicBoolean();
+
+    /**
+     * @param threads the number of threads to search with, including the
+     *                calling thread
+     * @param table   the transposition table the threads share
+     */
+    public LazySmpSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread");
+        }
+        this.table = table;
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table);
+        }
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "lazy-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a search on every available core with its own table of
+     * {@link Search#DEFAULT_TABLE_MEGABYTES}
+     */
+    public LazySmpSearch() {
+        this(Runtime.getRuntime().availableProcessors(), new TranspositionTable(Search.DEFAULT_TABLE_MEGABYTES));
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * Searches a position on every thread until the main thread reaches a
+     * limit. A node budget is split evenly between the threads.
+     *
+     * @param position the position to search. It is copied, never modified.
+     * @param limits   when to stop
+     * @return the result of the deepest iteration any thread finished, with
+     * the node count of all threads together
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits) {
+        long start = System.nanoTime();
+        AtomicBoolean stop = new AtomicBoolean();
+        stopSignal = stop;
+        table.newSearch();
+        // The threads each copy this private copy, so the caller's game is only read here
+        ChessGame root = new ChessGame(position);
+
+        List<Future<SearchResult>> helperResults = new ArrayList<>(searches.length - 1);
+        SearchLimits helperLimits = limits.withNodes(0);
+        for (int helper = 1; helper < searches.length; helper++) {
+            Search search = searches[helper];
+            int number = helper;
+            helperResults.add(helpers.submit(() -> search.search(root, helperLimits, number, stop)));
+        }
+
+        SearchLimits mainLimits = limits.nodes() > 0
+                ? limits.withNodes(Math.max(1, limits.nodes() / searches.length)) : limits;
+        SearchResult best = searches[0].search(root, mainLimits, 0, stop);
+        stop.set(true);
+
+        long nodes = best.nodes();
+        for (Future<SearchResult> future : helperResults) {
+            SearchResult result = join(future);
+            nodes += result.nodes();
+            if (result.depth() > best.depth()) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.bestMove(), best.score(), best.depth(), nodes, System.nanoTime() - start,
+                best.principalVariation());
+    }
+
+    private static SearchResult join(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a search thread", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search thread failed", e.getCause());
+        }
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. Safe to call from
+     * any thread.
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    /**
+     * Stops the helper threads
+     */
+    @Override
+    public void close() {
+        stop();
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    /**
+     * Searches a position for a fixed time on one thread up to every core,
+     * doubling each time, and prints how the speed scales
+     *
+     * @param game   the position to search
+     * @param millis how long each search runs
+     */
+    public static void printScaling(ChessGame game, long millis) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long baseline = 0;
+        System.out.printf("%7s %14s %14s %8s %6s  %s%n", "threads", "nodes", "nps", "speedup", "depth", "move");
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            try (LazySmpSearch search = new LazySmpSearch(threads, new TranspositionTable(64))) {
+                SearchResult result = search.search(game, SearchLimits.time(millis));
+                if (threads == 1) {
+                    baseline = result.nodesPerSecond();
+                }
+                System.out.printf("%7d %,14d %,14d %7.2fx %6d  %s%n", threads, result.nodes(),
+                        result.nodesPerSecond(), (double) result.nodesPerSecond() / baseline, result.depth(),
+                        result.getBestMove());
+            }
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Prints how search speed scales with threads. Run with
+     * {@code <millis> [fen]}.
+     */
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 5000;
+        String fen = args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length))
+                : Fen.START_POSITION;
+        printScaling(Fen.toGame(fen), millis);
+    }
+}
@@ -0,0 +1,181 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessPiece;
+
+import java.util.Arrays;
+
+/**
+ * The pieces a tablebase covers, named like {@code KQvKR}: white's pieces,
+ * then black's, each side in {@link ChessPiece.PieceType} order. Both
+ * sides always have exactly one king.
+ * <p>
+ * A position is indexed by the square of each piece in that order, the
+ * squares of several pieces of the same kind in ascending order, then the
+ * side to move: {@code ((square0 * 64 + square1) * 64 + ...) * 2 + turn}.
+ * Positions with the colours swapped are looked up in the same table with
+ * the board turned over.
+ */
+final class Material {
+
+    // Indexed by PieceType ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final String LETTERS = "KQBNRP";
+
+    private final String name;
+    private final int[] pieces;
+
+    private Material(String name, int[] pieces) {
+        this.name = name;
+        this.pieces = pieces;
+    }
+
+    /**
+     * @param name a material name such as {@code KRPvK}, in any piece order
+     * @throws IllegalArgumentException if the name is malformed or a side
+     *                                  does not have exactly one king
+     */
+    static Material parse(String name) {
+        int split = name.indexOf('v');
+        if (split < 0 || split != name.lastIndexOf('v')) {
+            throw new IllegalArgumentException("Material needs one 'v' between the sides: " + name);
+        }
+        int[] counts = new int[Bitboards.PIECE_KINDS];
+        for (int i = 0; i < name.length(); i++) {
+            if (i == split) {
+                continue;
+            }
+            int type = LETTERS.indexOf(name.charAt(i));
+            if (type < 0) {
+                throw new IllegalArgumentException("Unknown piece '" + name.charAt(i) + "' in " + name);
+            }
+            int team = i < split ? Bitboards.WHITE : Bitboards.BLACK;
+            counts[team * Bitboards.PIECE_TYPES + type]++;
+        }
+        return fromCounts(counts);
+    }
+
+    /**
+     * @return the material on a board, or null if a side does not have
+     * exactly one king
+     */
+    static Material of(Bitboards bitboards) {
+        int[] counts = new int[Bitboards.PIECE_KINDS];
+        for (int piece = 0; piece < Bitboards.PIECE_KINDS; piece++) {
+            counts[piece] = Long.bitCount(bitboards.pieces(piece));
+        }
+        return hasOneKingEach(counts) ? fromCounts(counts) : null;
+    }
+
+    private static Material fromCounts(int[] counts) {
+        if (!hasOneKingEach(counts)) {
+            throw new IllegalArgumentException("Each side needs exactly one king");
+        }
+        StringBuilder name = new StringBuilder();
+        int[] pieces = new int[Arrays.stream(counts).sum()];
+        int next = 0;
+        for (int piece = 0; piece < Bitboards.PIECE_KINDS; piece++) {
+            if (piece == Bitboards.BLACK * Bitboards.PIECE_TYPES) {
+                name.append('v');
+            }
+            for (int i = 0; i < counts[piece]; i++) {
+                name.append(LETTERS.charAt(Bitboards.typeOf(piece)));
+                pieces[next++] = piece;
+            }
+        }
+        return new Material(name.toString(), pieces);
+    }
+
+    private static boolean hasOneKingEach(int[] counts) {
+        return counts[Bitboards.pieceIndex(Bitboards.WHITE, ChessPiece.PieceType.KING)] == 1
+                && counts[Bitboards.pieceIndex(Bitboards.BLACK, ChessPiece.PieceType.KING)] == 1;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return the Bitboards piece index of each piece, in index order
+     */
+    int[] pieces() {
+        return pieces;
+    }
+
+    /**
+     * @param i     a piece, by its place in index order
+     * @param piece the Bitboards piece index to turn it into, or
+     *              {@link Bitboards#EMPTY} to take it off
+     * @return the material after a capture or a promotion
+     */
+    Material replace(int i, int piece) {
+        int[] counts = new int[Bitboards.PIECE_KINDS];
+        for (int existing : pieces) {
+            counts[existing]++;
+        }
+        counts[pieces[i]]--;
+        if (piece != Bitboards.EMPTY) {
+            counts[piece]++;
+        }
+        return fromCounts(counts);
+    }
+
+    /**
+     * @return the same material with the colours swapped
+     */
+    Material flipped() {
+        int split = name.indexOf('v');
+        return parse(name.substring(split + 1) + 'v' + name.substring(0, split));
+    }
+
+    /**
+     * @return the number of entries in a table for this material
+     */
+    long entries() {
+        return 2L << (6 * pieces.length);
+    }
+
+    /**
+     * @param bitboards a position with exactly this material, or this
+     *                  material flipped
+     * @param turn      the team to move
+     * @param flip      True to read the board with the colours swapped and
+     *                  turned over, for a position of the flipped material
+     * @return the position's entry in a table
+     */
+    long index(Bitboards bitboards, int turn, boolean flip) {
+        long index = 0;
+        int i = 0;
+        while (i < pieces.length) {
+            int piece = pieces[i];
+            long squares = flip
+                    ? Long.reverseBytes(bitboards.pieces((piece + Bitboards.PIECE_TYPES) % Bitboards.PIECE_KINDS))
+                    : bitboards.pieces(piece);
+            while (squares != 0) {
+                index = (index << 6) | Long.numberOfTrailingZeros(squares);
+                squares &= squares - 1;
+                i++;
+            }
+        }
+        return (index << 1) | (flip ? 1 - turn : turn);
+    }
+
+    /**
+     * Reads the squares of each piece back out of an index
+     *
+     * @param squares filled with each piece's square, in index order
+     * @return the team to move
+     */
+    int decode(long index, int[] squares) {
+        long rest = index >>> 1;
+        for (int i = pieces.length - 1; i >= 0; i--) {
+            squares[i] = (int) (rest & 63);
+            rest >>>= 6;
+        }
+        return (int) (index & 1);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
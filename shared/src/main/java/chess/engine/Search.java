@@ -0,0 +1,422 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessGame;
+import chess.Evaluation;
+import chess.MovePicker;
+import chess.PackedMove;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Chooses a move with an iterative-deepening alpha-beta (negamax) search.
+ * <p>
+ * The search plays moves in place on its own copy of the game with
+ * {@link ChessGame#makeMove(int)} and {@link ChessGame#unmakeMove}, and keeps
+ * every per-ply buffer for the life of the Search, so searching allocates
+ * nothing per node. A Search is not thread-safe, but it may be reused for
+ * any number of searches one after another; use one per thread to run
+ * searches at once.
+ * <p>
+ * Results are kept in a {@link TranspositionTable}, which later iterations
+ * and later searches reuse. Searches can share one table, even across
+ * threads, which keeps the engine's memory use fixed however many searches
+ * run.
+ */
+public class Search {
+
+    /** The deepest the search can go, in plies from the root. */
+    public static final int MAX_PLY = 64;
+    /** The score for delivering checkmate right now. Mates further away score less. */
+    public static final int MATE = 32000;
+    public static final int DRAW = 0;
+    /** The table size used by {@link #Search()}. */
+    public static final int DEFAULT_TABLE_MEGABYTES = 16;
+
+    private static final int INFINITY = MATE + 1;
+    // How many nodes go by between checks of the clock
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    // Which depths Lazy SMP helpers skip: helper h skips depth d when
+    // ((d + SKIP_PHASE[i]) / SKIP_SIZE[i]) is odd, where i = (h - 1) % 20
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final int[][] killers = new int[MAX_PLY][2];
+    // Indexed by team, then MovePicker.historyIndex
+    private final int[][] history = new int[2][4096];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final int[] previousPv = new int[MAX_PLY];
+    private int previousPvLength;
+    private final long[] keys = new long[MAX_PLY];
+
+    private final TranspositionTable table;
+    private ChessGame game;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean canStop;
+    private boolean stopped;
+    private volatile AtomicBoolean stopSignal = new AtomicBoolean();
+
+    /**
+     * Creates a search with its own transposition table of
+     * {@link #DEFAULT_TABLE_MEGABYTES}
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+    }
+
+    /**
+     * @param table the transposition table to use, which may be shared with
+     *              other searches
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker();
+        }
+    }
+
+    /**
+     * Searches a position until a limit is reached
+     *
+     * @param position the position to search. It is copied, never modified.
+     * @param limits   when to stop
+     * @return the result of the deepest iteration finished
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits) {
+        return search(position, limits, null);
+    }
+
+    /**
+     * Searches a position until a limit is reached, reporting each
+     * iteration as it finishes
+     *
+     * @param position  the position to search. It is copied, never modified.
+     * @param limits    when to stop
+     * @param iteration called on the searching thread with the result of
+     *                  each depth as it finishes, or null
+     * @return the result of the deepest iteration finished
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits, Consumer<SearchResult> iteration) {
+        return search(position, limits, new AtomicBoolean(), iteration);
+    }
+
+    /**
+     * Searches a position until a limit is reached or a stop signal is set.
+     * A caller that reuses one Search for several requests should stop each
+     * through its own signal, since {@link #stop} stops whichever search is
+     * running when it is called.
+     *
+     * @param stopSignal set, from any thread, to stop this search
+     * @param iteration  called on the searching thread with the result of
+     *                   each depth as it finishes, or null
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits, AtomicBoolean stopSignal,
+                               Consumer<SearchResult> iteration) {
+        table.newSearch();
+        return search(position, limits, 0, stopSignal, iteration);
+    }
+
+    /**
+     * Searches a position as one thread of a {@link LazySmpSearch}
+     *
+     * @param helper     0 for the main thread, which searches every depth,
+     *                   or a helper number, which decides the depths to skip
+     * @param stopSignal set to stop every thread of the search
+     */
+    SearchResult search(ChessGame position, SearchLimits limits, int helper, AtomicBoolean stopSignal) {
+        return search(position, limits, helper, stopSignal, null);
+    }
+
+    private SearchResult search(ChessGame position, SearchLimits limits, int helper, AtomicBoolean stopSignal,
+                                Consumer<SearchResult> iteration) {
+        long start = System.nanoTime();
+        this.stopSignal = stopSignal;
+        game = new ChessGame(position);
+        nodes = 0;
+        nodeLimit = limits.nodes() > 0 ? limits.nodes() : Long.MAX_VALUE;
+        deadline = limits.millis() > 0 ? start + limits.millis() * 1_000_000 : Long.MAX_VALUE;
+        int maxDepth = limits.depth() > 0 ? Math.min(limits.depth(), MAX_PLY - 1) : MAX_PLY - 1;
+        canStop = false;
+        stopped = false;
+        previousPvLength = 0;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            killers[ply][0] = PackedMove.NONE;
+            killers[ply][1] = PackedMove.NONE;
+        }
+        Arrays.fill(history[0], 0);
+        Arrays.fill(history[1], 0);
+
+        SearchResult result = new SearchResult(PackedMove.NONE, DRAW, 0, 0, 0, new int[0]);
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (helper > 0 && depth > 1 && skipsDepth(helper, depth)) {
+                continue;
+            }
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (stopped) {
+                break;
+            }
+            int[] pv = Arrays.copyOf(pvTable[0], pvLength[0]);
+            result = new SearchResult(pv.length > 0 ? pv[0] : PackedMove.NONE, score, depth, nodes,
+                    System.nanoTime() - start, pv);
+            System.arraycopy(pv, 0, previousPv, 0, pv.length);
+            previousPvLength = pv.length;
+            canStop = true;
+            if (iteration != null) {
+                iteration.accept(result);
+            }
+            if (pv.length == 0 || Math.abs(score) >= MATE - depth) {
+                // No moves, or a mate that deeper iterations cannot improve on
+                break;
+            }
+        }
+        game = null;
+        return new SearchResult(result.bestMove(), result.score(), result.depth(), nodes,
+                System.nanoTime() - start, result.principalVariation());
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. It returns the
+     * result of the deepest iteration it finished. Safe to call from any
+     * thread.
+     */
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    /**
+     * Spreads Lazy SMP helpers over different depths, so they fill the
+     * shared table with results the main thread has not reached yet instead
+     * of repeating its work
+     */
+    private static boolean skipsDepth(int helper, int depth) {
+        int i = (helper - 1) % SKIP_SIZE.length;
+        return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (shouldStop()) {
+            return DRAW;
+        }
+        nodes++;
+
+        long key = game.zobristKey();
+        if (ply > 0 && isRepetition(key, ply)) {
+            return DRAW;
+        }
+        keys[ply] = key;
+        if (depth == 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (ply == MAX_PLY - 1) {
+            return evaluate();
+        }
+
+        long entry = table.probe(key);
+        int hashMove = PackedMove.NONE;
+        if (entry != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        if (hashMove == PackedMove.NONE && ply < previousPvLength) {
+            hashMove = previousPv[ply];
+        }
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        int[] teamHistory = history[Bitboards.team(turn)];
+        MovePicker picker = pickers[ply];
+        picker.reset(game.getBoard(), turn, hashMove, killers[ply][0], killers[ply][1], teamHistory);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        int legalMoves = 0;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            long undo = game.makeMove(move);
+            if (isKingAttacked(turn)) {
+                game.unmakeMove(move, undo);
+                continue;
+            }
+            legalMoves++;
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            game.unmakeMove(move, undo);
+            if (stopped) {
+                return DRAW;
+            }
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (!PackedMove.isCapture(move) && !PackedMove.isPromotion(move)) {
+                            rememberCutoff(move, ply, depth, teamHistory);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (legalMoves == 0) {
+            return isKingAttacked(turn) ? -MATE + ply : DRAW;
+        }
+
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, scoreToTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Plays out captures and promotions until the position is quiet, so a
+     * leaf is never scored halfway through an exchange. The side to move may
+     * stand pat on the static score instead of capturing, and captures that
+     * lose material by static exchange are not searched at all.
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        int standPat = evaluate();
+        if (standPat >= beta || ply == MAX_PLY - 1) {
+            return standPat;
+        }
+        alpha = Math.max(alpha, standPat);
+
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        MovePicker picker = pickers[ply];
+        picker.resetCaptures(game.getBoard(), turn);
+        int best = standPat;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            long undo = game.makeMove(move);
+            if (isKingAttacked(turn)) {
+                game.unmakeMove(move, undo);
+                continue;
+            }
+            if (shouldStop()) {
+                game.unmakeMove(move, undo);
+                return DRAW;
+            }
+            nodes++;
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            game.unmakeMove(move, undo);
+            if (stopped) {
+                return DRAW;
+            }
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Mate scores count plies from the root, but a table entry can be reached
+     * at any ply, so the table holds them counted from the entry's position
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private boolean shouldStop() {
+        if (stopped) {
+            return true;
+        }
+        if (canStop && (nodes >= nodeLimit || stopSignal.get()
+                || (nodes % TIME_CHECK_INTERVAL == 0 && System.nanoTime() >= deadline))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * @return True if the position already came up earlier in the line being
+     * searched, with the same side to move
+     */
+    private boolean isRepetition(long key, int ply) {
+        for (int earlier = ply - 2; earlier >= 0; earlier -= 2) {
+            if (keys[earlier] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updatePv(int ply, int move) {
+        int[] line = pvTable[ply];
+        int[] child = pvTable[ply + 1];
+        line[ply] = move;
+        for (int next = ply + 1; next < pvLength[ply + 1]; next++) {
+            line[next] = child[next];
+        }
+        pvLength[ply] = pvLength[ply + 1];
+    }
+
+    /**
+     * Records a quiet move that caused a cutoff, so sibling positions try it
+     * early as a killer and the whole search ranks it higher by history
+     */
+    private void rememberCutoff(int move, int ply, int depth, int[] teamHistory) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = MovePicker.historyIndex(move);
+        teamHistory[index] += depth * depth;
+        if (teamHistory[index] > 1 << 20) {
+            for (int i = 0; i < teamHistory.length; i++) {
+                teamHistory[i] >>= 1;
+            }
+        }
+    }
+
+    private boolean isKingAttacked(ChessGame.TeamColor teamColor) {
+        Bitboards bitboards = game.getBoard().getBitboards();
+        int team = Bitboards.team(teamColor);
+        int kingSquare = bitboards.kingSquare(team);
+        return kingSquare >= 0 && bitboards.isAttacked(kingSquare, 1 - team);
+    }
+
+    /**
+     * @return the score in centipawns for the side to move
+     */
+    private int evaluate() {
+        return Evaluation.evaluate(game.getBoard().getBitboards(), game.getTeamTurn());
+    }
+}
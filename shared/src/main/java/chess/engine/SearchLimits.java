@@ -0,0 +1,37 @@
+package chess.engine;
+
+/**
+ * How long a {@link Search} may run. A search stops at whichever limit it
+ * reaches first; a limit of zero means no limit. Whatever the limits, a
+ * search always finishes depth 1 so it has a move to return.
+ *
+ * @param depth  the deepest iteration to search, in plies
+ * @param millis the time budget in milliseconds
+ * @param nodes  the node budget
+ */
+public record SearchLimits(int depth, long millis, long nodes) {
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits time(long millis) {
+        return new SearchLimits(0, millis, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, 0, nodes);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, millis, nodes);
+    }
+
+    public SearchLimits withMillis(long millis) {
+        return new SearchLimits(depth, millis, nodes);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, millis, nodes);
+    }
+}
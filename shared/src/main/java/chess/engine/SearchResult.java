@@ -0,0 +1,56 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a {@link Search}: the deepest iteration it finished
+ *
+ * @param bestMove           the move to play as a {@link PackedMove} int, or
+ *                           {@link PackedMove#NONE} if the side to move has no moves
+ * @param score              the score in centipawns for the side to move
+ * @param depth              the depth of the finished iteration
+ * @param nodes              the nodes visited by the whole search
+ * @param nanos              how long the whole search took
+ * @param principalVariation the line the search expects, starting with bestMove
+ */
+public record SearchResult(int bestMove, int score, int depth, long nodes, long nanos, int[] principalVariation) {
+
+    public ChessMove getBestMove() {
+        return bestMove == PackedMove.NONE ? null : PackedMove.toChessMove(bestMove);
+    }
+
+    public List<ChessMove> getPrincipalVariation() {
+        List<ChessMove> moves = new ArrayList<>(principalVariation.length);
+        for (int move : principalVariation) {
+            moves.add(PackedMove.toChessMove(move));
+        }
+        return moves;
+    }
+
+    /**
+     * @return True if the score is a forced checkmate for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return the number of moves to the forced mate, negative if the side to
+     * move is the one getting mated, or 0 if the score is not a mate
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    public long nodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,118 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exact win, draw or loss answers for endgames with few pieces, read from
+ * tables made by {@link TablebaseGenerator} instead of searched.
+ * <p>
+ * Each combination of pieces has its own file in the directory, named for
+ * its {@link Material} such as {@code KQvK.ctb}. Files are memory-mapped
+ * the first time a position needs them and shared from then on, so one
+ * instance can serve every game on a server without copying tables onto the
+ * heap. Probing is safe from any number of threads.
+ */
+public class Tablebase {
+
+    /** The most pieces, kings included, that a table can cover. */
+    public static final int MAX_PIECES = 5;
+
+    /**
+     * The result of a position with best play, for the team to move
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    private final Path directory;
+    private final ConcurrentHashMap<String, Optional<TablebaseFile>> files = new ConcurrentHashMap<>();
+
+    /**
+     * @param directory where the table files are. Missing files just make
+     *                  probes for their material return null.
+     */
+    public Tablebase(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the outcome of the game's position for the team to move, or
+     * null if no table covers it
+     */
+    public Outcome probe(ChessGame game) {
+        return probe(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * @param board  the position to look up
+     * @param toMove the team to move
+     * @return the outcome for toMove with best play, or null if no table
+     * covers the position
+     * @throws UncheckedIOException if a table file exists but cannot be read
+     */
+    public Outcome probe(ChessBoard board, ChessGame.TeamColor toMove) {
+        Bitboards bitboards = board.getBitboards();
+        if (Long.bitCount(bitboards.occupied()) > MAX_PIECES) {
+            return null;
+        }
+        Material material = Material.of(bitboards);
+        if (material == null) {
+            return null;
+        }
+        boolean flip = false;
+        TablebaseFile file = file(material);
+        if (file == null) {
+            flip = true;
+            file = file(material.flipped());
+        }
+        if (file == null) {
+            return null;
+        }
+        return outcome(file.get(file.material().index(bitboards, Bitboards.team(toMove), flip)));
+    }
+
+    /**
+     * @return True if this directory has a table for the material, in
+     * either colour
+     */
+    public boolean covers(String material) {
+        Material parsed = Material.parse(material);
+        return file(parsed) != null || file(parsed.flipped()) != null;
+    }
+
+    static Outcome outcome(int entry) {
+        return entry == TablebaseFile.ILLEGAL ? null : Outcome.values()[entry - 1];
+    }
+
+    static int entry(Outcome outcome) {
+        return outcome.ordinal() + 1;
+    }
+
+    private TablebaseFile file(Material material) {
+        return files.computeIfAbsent(material.name(), name -> {
+            if (!Files.exists(TablebaseFile.path(directory, material))) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(TablebaseFile.open(directory, material));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not map tablebase " + name, e);
+            }
+        }).orElse(null);
+    }
+}
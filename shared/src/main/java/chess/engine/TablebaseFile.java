@@ -0,0 +1,102 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One tablebase file, memory-mapped: a header, then two bits per position
+ * indexed by {@link Material#index}, four positions to a byte. Reads use
+ * absolute gets on the mapped buffer, so any number of threads can probe a
+ * file at once, and the operating system shares its pages between every
+ * game and process that maps it.
+ * <p>
+ * The header is the magic number {@code CTB1}, then the number of entries
+ * as a long. An entry of 0 is a position that cannot occur, and the other
+ * values are the {@link Tablebase.Outcome} ordinal plus one.
+ */
+final class TablebaseFile {
+
+    static final String EXTENSION = ".ctb";
+    static final int ILLEGAL = 0;
+
+    private static final int MAGIC = 0x43544231;
+    private static final int HEADER_BYTES = 12;
+
+    private final Material material;
+    private final MappedByteBuffer buffer;
+
+    private TablebaseFile(Material material, MappedByteBuffer buffer) {
+        this.material = material;
+        this.buffer = buffer;
+    }
+
+    static Path path(Path directory, Material material) {
+        return directory.resolve(material.name() + EXTENSION);
+    }
+
+    /**
+     * Maps an existing file read-only
+     *
+     * @throws IllegalArgumentException if the file is not a table for the
+     *                                  material
+     */
+    static TablebaseFile open(Path directory, Material material) throws IOException {
+        Path path = path(directory, material);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel closes
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() != fileSize(material) || buffer.getInt(0) != MAGIC
+                    || buffer.getLong(4) != material.entries()) {
+                throw new IllegalArgumentException(path + " is not a tablebase for " + material);
+            }
+            return new TablebaseFile(material, buffer);
+        }
+    }
+
+    /**
+     * Creates a file of all-zero entries and maps it for writing
+     */
+    static TablebaseFile create(Path directory, Material material) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(directory, material), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(material));
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(4, material.entries());
+            return new TablebaseFile(material, buffer);
+        }
+    }
+
+    private static long fileSize(Material material) {
+        return HEADER_BYTES + (material.entries() + 3) / 4;
+    }
+
+    Material material() {
+        return material;
+    }
+
+    /**
+     * @return the two-bit entry at an index
+     */
+    int get(long index) {
+        return (buffer.get(HEADER_BYTES + (int) (index >>> 2)) >>> (((int) index & 3) * 2)) & 3;
+    }
+
+    /**
+     * Writes an entry. Only for files from {@link #create}, by one thread.
+     */
+    void set(long index, int value) {
+        int offset = HEADER_BYTES + (int) (index >>> 2);
+        int shift = ((int) index & 3) * 2;
+        buffer.put(offset, (byte) ((buffer.get(offset) & ~(3 << shift)) | (value << shift)));
+    }
+
+    /**
+     * Writes a created file's changes out to disk
+     */
+    void flush() {
+        buffer.force();
+    }
+}
@@ -0,0 +1,265 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.LegalMoves;
+import chess.PackedMove;
+import chess.PieceMovesCalculator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Builds the {@link Tablebase} file for a set of pieces by working back from
+ * the positions that end the game.
+ * <p>
+ * Each pass visits every unresolved position: one with a move to a lost
+ * position is won, and one whose moves all reach won positions is lost.
+ * Captures and promotions lead to smaller tables, which are generated first
+ * if the directory lacks them. Once a pass changes nothing, every position
+ * still unresolved is one neither side can force, so it is a draw, as these
+ * rules have no move limit to end it sooner.
+ * <p>
+ * Tables grow by a factor of 64 per piece: three pieces take seconds, four
+ * take minutes and five need hours and a 512MB file. Run with
+ * {@code <directory> <material>...}, such as {@code tables KQvK KRvK}.
+ */
+public class TablebaseGenerator {
+
+    private static final int WIN = Tablebase.entry(Tablebase.Outcome.WIN);
+    private static final int DRAW = Tablebase.entry(Tablebase.Outcome.DRAW);
+    private static final int LOSS = Tablebase.entry(Tablebase.Outcome.LOSS);
+    private static final int UNKNOWN = TablebaseFile.ILLEGAL;
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT};
+
+    /**
+     * What generating a table found
+     *
+     * @param passes how many passes over the table it took
+     */
+    public record Result(String material, long wins, long draws, long losses, int passes, long nanos) {
+    }
+
+    private final Material material;
+    private final TablebaseFile file;
+    private final Tablebase smallerTables;
+    private final ChessGame game = new ChessGame();
+    private final ChessBoard board = new ChessBoard();
+    private final ChessPiece[] pieces = new ChessPiece[Bitboards.PIECE_KINDS];
+    private final int[] squares;
+    private final int[] placed;
+    private final int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+    private int placedCount;
+
+    private TablebaseGenerator(Path directory, Material material) throws IOException {
+        this.material = material;
+        file = TablebaseFile.create(directory, material);
+        smallerTables = new Tablebase(directory);
+        game.setBoard(board);
+        for (int piece = 0; piece < Bitboards.PIECE_KINDS; piece++) {
+            pieces[piece] = new ChessPiece(Bitboards.teamColor(Bitboards.teamOf(piece)),
+                    ChessPiece.PieceType.values()[Bitboards.typeOf(piece)]);
+        }
+        squares = new int[material.pieces().length];
+        placed = new int[material.pieces().length];
+    }
+
+    /**
+     * Generates the table for a material, and any smaller tables it needs
+     * that the directory lacks
+     *
+     * @param directory where to write the tables
+     * @param material  the pieces, such as {@code KRvK}
+     * @return what the table for the material holds
+     * @throws IllegalArgumentException if the material is malformed or has
+     *                                  more than {@link Tablebase#MAX_PIECES}
+     */
+    public static Result generate(Path directory, String material) throws IOException {
+        Material parsed = Material.parse(material);
+        if (parsed.pieces().length > Tablebase.MAX_PIECES) {
+            throw new IllegalArgumentException("Tablebases cover at most " + Tablebase.MAX_PIECES + " pieces");
+        }
+        Files.createDirectories(directory);
+        generateSmallerTables(directory, parsed);
+        return new TablebaseGenerator(directory, parsed).run();
+    }
+
+    /**
+     * Generates the tables for every material a capture or promotion can
+     * reach, smallest first
+     */
+    private static void generateSmallerTables(Path directory, Material material) throws IOException {
+        int[] materialPieces = material.pieces();
+        for (int i = 0; i < materialPieces.length; i++) {
+            int type = Bitboards.typeOf(materialPieces[i]);
+            if (type == ChessPiece.PieceType.KING.ordinal()) {
+                continue;
+            }
+            generateIfMissing(directory, material.replace(i, Bitboards.EMPTY));
+            if (type == PAWN) {
+                int team = Bitboards.teamOf(materialPieces[i]);
+                for (ChessPiece.PieceType promotion : PROMOTION_TYPES) {
+                    generateIfMissing(directory, material.replace(i, Bitboards.pieceIndex(team, promotion)));
+                }
+            }
+        }
+    }
+
+    private static void generateIfMissing(Path directory, Material material) throws IOException {
+        if (Files.exists(TablebaseFile.path(directory, material))
+                || Files.exists(TablebaseFile.path(directory, material.flipped()))) {
+            return;
+        }
+        generateSmallerTables(directory, material);
+        new TablebaseGenerator(directory, material).run();
+    }
+
+    private Result run() {
+        long start = System.nanoTime();
+        long entries = material.entries();
+        int passes = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            passes++;
+            for (long index = 0; index < entries; index++) {
+                if (file.get(index) != UNKNOWN || !setUp(index)) {
+                    continue;
+                }
+                int value = resolve();
+                if (value != UNKNOWN) {
+                    file.set(index, value);
+                    changed = true;
+                }
+            }
+        }
+
+        long wins = 0;
+        long draws = 0;
+        long losses = 0;
+        for (long index = 0; index < entries; index++) {
+            int value = file.get(index);
+            if (value == UNKNOWN && setUp(index)) {
+                file.set(index, DRAW);
+                value = DRAW;
+            }
+            if (value == WIN) {
+                wins++;
+            } else if (value == DRAW) {
+                draws++;
+            } else if (value == LOSS) {
+                losses++;
+            }
+        }
+        file.flush();
+        return new Result(material.name(), wins, draws, losses, passes, System.nanoTime() - start);
+    }
+
+    /**
+     * Puts the position for an index on the board
+     *
+     * @return False if the index is not a position that can occur: pieces
+     * share a square, a pawn stands on the first or last row, the side not
+     * to move is in check, or two pieces of a kind are out of order and so
+     * repeat another index
+     */
+    private boolean setUp(long index) {
+        int turn = material.decode(index, squares);
+        int[] materialPieces = material.pieces();
+        long used = 0;
+        for (int i = 0; i < squares.length; i++) {
+            int square = squares[i];
+            if ((used & (1L << square)) != 0
+                    || (i > 0 && materialPieces[i] == materialPieces[i - 1] && square < squares[i - 1])) {
+                return false;
+            }
+            int row = square >>> 3;
+            if (Bitboards.typeOf(materialPieces[i]) == PAWN && (row == 0 || row == 7)) {
+                return false;
+            }
+            used |= 1L << square;
+        }
+
+        for (int i = 0; i < placedCount; i++) {
+            board.addPiece(placed[i], null);
+        }
+        for (int i = 0; i < squares.length; i++) {
+            board.addPiece(squares[i], pieces[materialPieces[i]]);
+            placed[i] = squares[i];
+        }
+        placedCount = squares.length;
+        game.setTeamTurn(Bitboards.teamColor(turn));
+
+        Bitboards bitboards = board.getBitboards();
+        return !bitboards.isAttacked(bitboards.kingSquare(1 - turn), turn);
+    }
+
+    /**
+     * @return the position's value from its moves' values so far, or
+     * UNKNOWN if they do not settle it yet
+     */
+    private int resolve() {
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        int count = LegalMoves.generate(board, toMove, moves);
+        if (count == 0) {
+            int team = Bitboards.team(toMove);
+            Bitboards bitboards = board.getBitboards();
+            return bitboards.isAttacked(bitboards.kingSquare(team), 1 - team) ? LOSS : DRAW;
+        }
+
+        boolean allWon = true;
+        boolean allKnown = true;
+        for (int i = 0; i < count; i++) {
+            long undo = game.makeMove(moves[i]);
+            int child = childValue(moves[i]);
+            game.unmakeMove(moves[i], undo);
+            if (child == LOSS) {
+                return WIN;
+            }
+            allWon &= child == WIN;
+            allKnown &= child != UNKNOWN;
+        }
+        if (allWon) {
+            return LOSS;
+        }
+        return allKnown ? DRAW : UNKNOWN;
+    }
+
+    /**
+     * @return the value of the position after a move, for the team now to
+     * move
+     */
+    private int childValue(int move) {
+        if (PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+            Tablebase.Outcome outcome = smallerTables.probe(board, game.getTeamTurn());
+            if (outcome == null) {
+                throw new IllegalStateException("No table after " + PackedMove.toString(move) + " from "
+                        + material);
+            }
+            return Tablebase.entry(outcome);
+        }
+        return file.get(material.index(board.getBitboards(), Bitboards.team(game.getTeamTurn()), false));
+    }
+
+    /**
+     * Generates the tables named on the command line
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: <directory> <material>...");
+            return;
+        }
+        Path directory = Paths.get(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            Result result = generate(directory, args[i]);
+            System.out.printf("%s: %,d wins %,d draws %,d losses in %d passes, %.1fs%n", result.material(),
+                    result.wins(), result.draws(), result.losses(), result.passes(), result.nanos() / 1e9);
+        }
+    }
+}
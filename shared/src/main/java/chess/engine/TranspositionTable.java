@@ -0,0 +1,186 @@
+package chess.engine;
+
+import chess.PackedMove;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results keyed by Zobrist key, which any
+ * number of search threads can share without locks.
+ * <p>
+ * Each entry is two longs in one {@code long[]}: the data, and the key XOR
+ * the data. A reader accepts an entry only if the two XOR back to its key,
+ * so an entry torn by two threads writing it at once reads as a miss instead
+ * of as another position's result. Entries sit in buckets of four, 64 bytes
+ * to a bucket, and a store replaces the entry in its bucket that is
+ * shallowest and from the oldest search.
+ * <p>
+ * The data packs, from the low bits up: the best move (18 bits, a
+ * {@link PackedMove}), the score (16 bits), the depth (8 bits), the
+ * bound (2 bits) and the age of the search that stored it (6 bits).
+ */
+public class TranspositionTable {
+
+    /** What {@link #probe} returns when the table has no entry for a key. */
+    public static final long MISS = 0;
+
+    /** The score is at least the stored score: the search failed high. */
+    public static final int BOUND_LOWER = 1;
+    /** The score is at most the stored score: the search failed low. */
+    public static final int BOUND_UPPER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private static final int ENTRIES_PER_BUCKET = 4;
+    private static final int BYTES_PER_ENTRY = 16;
+    private static final int SCORE_SHIFT = 18;
+    private static final int DEPTH_SHIFT = 34;
+    private static final int BOUND_SHIFT = 42;
+    private static final int AGE_SHIFT = 44;
+    private static final int AGE_MASK = 63;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Two longs per entry: key ^ data, then data
+    private final long[] slots;
+    private final int bucketMask;
+    private volatile int age;
+
+    /**
+     * @param megabytes the most memory the table may use. It is rounded down
+     *                  to a power of two number of buckets.
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB");
+        }
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / (BYTES_PER_ENTRY * ENTRIES_PER_BUCKET));
+        long longs = buckets * ENTRIES_PER_BUCKET * 2;
+        if (longs > Integer.MAX_VALUE - 8) {
+            buckets >>>= 1;
+            longs >>>= 1;
+        }
+        slots = new long[(int) longs];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Looks up a position
+     *
+     * @param key the position's Zobrist key
+     * @return the entry's data, to unpack with the static accessors, or
+     * {@link #MISS}
+     */
+    public long probe(long key) {
+        int base = bucket(key);
+        for (int i = base; i < base + ENTRIES_PER_BUCKET * 2; i += 2) {
+            long data = (long) SLOTS.getOpaque(slots, i + 1);
+            if (data != MISS && ((long) SLOTS.getOpaque(slots, i) ^ data) == key) {
+                return data;
+            }
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores a search result, replacing this position's old entry or else
+     * the least valuable entry in its bucket
+     *
+     * @param key   the position's Zobrist key
+     * @param move  the best move found, or {@link PackedMove#NONE}
+     * @param score the score, which must fit in 16 bits
+     * @param depth the depth searched, from 0 to 255
+     * @param bound one of the BOUND_ constants
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int currentAge = age;
+        int base = bucket(key);
+        int victim = base;
+        int victimValue = Integer.MAX_VALUE;
+        for (int i = base; i < base + ENTRIES_PER_BUCKET * 2; i += 2) {
+            long data = (long) SLOTS.getOpaque(slots, i + 1);
+            if (data == MISS || ((long) SLOTS.getOpaque(slots, i) ^ data) == key) {
+                if (data != MISS && move == PackedMove.NONE) {
+                    // Keep the old best move for ordering when this search found none
+                    move = move(data);
+                }
+                victim = i;
+                break;
+            }
+            // Older entries lose eight plies of depth for every search since they were stored
+            int value = depth(data) - 8 * ((currentAge - age(data)) & AGE_MASK);
+            if (value < victimValue) {
+                victim = i;
+                victimValue = value;
+            }
+        }
+
+        long data = (move & 0x3FFFFL)
+                | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+                | ((long) Math.min(depth, 255) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) currentAge << AGE_SHIFT);
+        SLOTS.setOpaque(slots, victim, key ^ data);
+        SLOTS.setOpaque(slots, victim + 1, data);
+    }
+
+    /**
+     * Marks the start of a new search, so entries from earlier searches are
+     * replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+    }
+
+    /**
+     * @return how full the table is with entries from the current search, in
+     * thousandths, estimated from the first thousand entries
+     */
+    public int hashfull() {
+        int currentAge = age;
+        int sampled = Math.min(1000, slots.length / 2);
+        int used = 0;
+        for (int i = 0; i < sampled; i++) {
+            long data = (long) SLOTS.getOpaque(slots, i * 2 + 1);
+            if (data != MISS && age(data) == currentAge) {
+                used++;
+            }
+        }
+        return used * 1000 / sampled;
+    }
+
+    /**
+     * @return the memory the table's entries use, in bytes
+     */
+    public long sizeBytes() {
+        return (long) slots.length * Long.BYTES;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0x3FFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 255;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> AGE_SHIFT) & AGE_MASK;
+    }
+
+    private int bucket(long key) {
+        return ((int) key & bucketMask) * ENTRIES_PER_BUCKET * 2;
+    }
+}
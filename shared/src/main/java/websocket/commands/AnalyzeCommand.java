@@ -0,0 +1,20 @@
+package websocket.commands;
+
+/**
+ * Asks the server's engine about a game's current position: ANALYZE streams
+ * a result for each depth searched, and HINT sends only the final best move
+ */
+public class AnalyzeCommand extends UserGameCommand {
+    private final Integer millis;
+    /**
+     * @param millis how long to search for, or null for the server's default.
+     *               The server keeps it within its own limits.
+     */
+    public AnalyzeCommand(CommandType commandType, String authToken, Integer gameID, Integer millis) {
+        super(commandType, authToken, gameID);
+        this.millis = millis;
+    }
+    public Integer getMillis() {
+        return millis;
+    }
+}
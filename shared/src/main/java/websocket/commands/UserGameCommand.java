@@ -26,7 +26,11 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        BOOK,
+        ANALYZE,
+        HINT,
+        STOP_ANALYSIS
     }
 
     public CommandType getCommandType() {
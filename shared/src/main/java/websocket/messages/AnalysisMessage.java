@@ -0,0 +1,61 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * One result from the engine analysing a game: the deepest search so far,
+ * or the final result once complete is true
+ */
+public class AnalysisMessage extends ServerMessage {
+    private final int depth;
+    private final int score;
+    private final Integer mateIn;
+    private final ChessMove bestMove;
+    private final List<ChessMove> principalVariation;
+    private final long nodes;
+    private final long millis;
+    private final boolean complete;
+    /**
+     * @param score  in centipawns from white's point of view
+     * @param mateIn moves to a forced mate, positive when white mates, or
+     *               null if there is no forced mate
+     */
+    public AnalysisMessage(int depth, int score, Integer mateIn, ChessMove bestMove,
+                           List<ChessMove> principalVariation, long nodes, long millis, boolean complete) {
+        super(ServerMessageType.ANALYSIS);
+        this.depth = depth;
+        this.score = score;
+        this.mateIn = mateIn;
+        this.bestMove = bestMove;
+        this.principalVariation = principalVariation;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.complete = complete;
+    }
+    public int getDepth() {
+        return depth;
+    }
+    public int getScore() {
+        return score;
+    }
+    public Integer getMateIn() {
+        return mateIn;
+    }
+    public ChessMove getBestMove() {
+        return bestMove;
+    }
+    public List<ChessMove> getPrincipalVariation() {
+        return principalVariation;
+    }
+    public long getNodes() {
+        return nodes;
+    }
+    public long getMillis() {
+        return millis;
+    }
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,33 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * The opening book's answer for a game's current position: the opening's
+ * name and the book moves, heaviest first, each with its weight
+ */
+public class BookMessage extends ServerMessage {
+    private final String opening;
+    private final List<ChessMove> moves;
+    private final List<Integer> weights;
+    public BookMessage(String opening, List<ChessMove> moves, List<Integer> weights) {
+        super(ServerMessageType.BOOK);
+        this.opening = opening;
+        this.moves = moves;
+        this.weights = weights;
+    }
+    /**
+     * @return the opening's name, or null if the position is not in the book
+     */
+    public String getOpening() {
+        return opening;
+    }
+    public List<ChessMove> getMoves() {
+        return moves;
+    }
+    public List<Integer> getWeights() {
+        return weights;
+    }
+}
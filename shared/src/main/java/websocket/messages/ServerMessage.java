@@ -14,7 +14,9 @@ public class ServerMessage {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        BOOK,
+        ANALYSIS
     }
 
     public ServerMessage(ServerMessageType type) {
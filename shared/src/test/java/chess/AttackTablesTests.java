@@ -0,0 +1,87 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class AttackTablesTests {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    /**
+     * Walks each ray from the square until it leaves the board or reaches an
+     * occupied square, which is attacked too
+     */
+    private static long walk(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int row = Bitboards.row(square) + direction[0];
+            int col = Bitboards.column(square) + direction[1];
+            while (row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+                int target = Bitboards.square(row, col);
+                attacks |= 1L << target;
+                if ((occupied & (1L << target)) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    @Test
+    @DisplayName("Magic Slider Attacks Match A Ray Walk")
+    public void sliders() {
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 20000; i++) {
+            // Sparse, even and crowded boards
+            long occupied = switch (i % 3) {
+                case 0 -> random.nextLong() & random.nextLong() & random.nextLong();
+                case 1 -> random.nextLong();
+                default -> random.nextLong() | random.nextLong();
+            };
+            for (int square = 0; square < 64; square++) {
+                long rook = walk(square, occupied, ROOK_DIRECTIONS);
+                long bishop = walk(square, occupied, BISHOP_DIRECTIONS);
+                Assertions.assertEquals(rook, AttackTables.rookAttacks(square, occupied),
+                        "Rook on " + square + " with " + Long.toHexString(occupied));
+                Assertions.assertEquals(bishop, AttackTables.bishopAttacks(square, occupied),
+                        "Bishop on " + square + " with " + Long.toHexString(occupied));
+                Assertions.assertEquals(rook | bishop, AttackTables.queenAttacks(square, occupied));
+            }
+        }
+        for (int square = 0; square < 64; square++) {
+            Assertions.assertEquals(walk(square, 0, ROOK_DIRECTIONS), AttackTables.rookAttacks(square, 0));
+            Assertions.assertEquals(walk(square, -1L, BISHOP_DIRECTIONS), AttackTables.bishopAttacks(square, -1L));
+        }
+    }
+
+    @Test
+    @DisplayName("Between And Line Follow The Rays")
+    public void betweenAndLine() {
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long bit = 1L << b;
+                boolean straight = (walk(a, 0, ROOK_DIRECTIONS) & bit) != 0;
+                boolean diagonal = (walk(a, 0, BISHOP_DIRECTIONS) & bit) != 0;
+                if (!straight && !diagonal) {
+                    Assertions.assertEquals(0, AttackTables.between(a, b));
+                    Assertions.assertEquals(0, AttackTables.line(a, b));
+                    continue;
+                }
+                int[][] directions = straight ? ROOK_DIRECTIONS : BISHOP_DIRECTIONS;
+                // Blocking each end with the other shows just the squares in between
+                long between = walk(a, bit, directions) & walk(b, 1L << a, directions);
+                Assertions.assertEquals(between, AttackTables.between(a, b), "Between " + a + " and " + b);
+                int rowStep = Integer.signum(Bitboards.row(b) - Bitboards.row(a));
+                int colStep = Integer.signum(Bitboards.column(b) - Bitboards.column(a));
+                long line = walk(a, 0, new int[][]{{rowStep, colStep}, {-rowStep, -colStep}}) | (1L << a);
+                Assertions.assertEquals(line, AttackTables.line(a, b), "Line through " + a + " and " + b);
+            }
+        }
+    }
+}
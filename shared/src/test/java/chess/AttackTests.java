@@ -0,0 +1,93 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.Set;
+
+public class AttackTests {
+
+    private static ChessPosition at(String square) {
+        return new ChessPosition(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(at(from), at(to), null);
+    }
+
+    @Test
+    @DisplayName("Sliders Attack Through A Cleared Square")
+    public void clearedSquare() throws InvalidMoveException {
+        // A knight on d4 blocks the d1 rook from the d8 king until it steps aside
+        ChessGame game = Fen.toGame("3k4/8/8/8/8/8/8/3RK3 w - - 0 1");
+        ChessBoard board = game.getBoard();
+        board.addPiece(at("d4"), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        Assertions.assertTrue(game.isSquareAttacked(at("d3"), ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isSquareAttacked(at("d8"), ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isInCheck(ChessGame.TeamColor.BLACK));
+
+        game.makeMove(move("d4", "f3"));
+        Assertions.assertTrue(game.isSquareAttacked(at("d8"), ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.isInCheck(ChessGame.TeamColor.BLACK));
+
+        // Emptying a square directly opens the line the same way
+        ChessGame diagonal = Fen.toGame("7k/8/8/8/3P4/8/8/B3K3 w - - 0 1");
+        Assertions.assertFalse(diagonal.isSquareAttacked(at("h8"), ChessGame.TeamColor.WHITE));
+        diagonal.getBoard().addPiece(at("d4"), null);
+        Assertions.assertTrue(diagonal.isSquareAttacked(at("h8"), ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(diagonal.isInCheck(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Pinned Pieces Keep The King Covered")
+    public void pinned() {
+        // The e2 rook is pinned along the file, the d2 bishop along the diagonal
+        ChessGame game = Fen.toGame("4r2k/8/8/b7/8/8/3BR3/4K3 w - - 0 1");
+        Collection<ChessMove> rookMoves = game.validMoves(at("e2"));
+        Assertions.assertEquals(Set.of(move("e2", "e3"), move("e2", "e4"), move("e2", "e5"), move("e2", "e6"),
+                move("e2", "e7"), move("e2", "e8")), Set.copyOf(rookMoves));
+        Collection<ChessMove> bishopMoves = game.validMoves(at("d2"));
+        Assertions.assertEquals(Set.of(move("d2", "c3"), move("d2", "b4"), move("d2", "a5")),
+                Set.copyOf(bishopMoves));
+
+        // A pinned knight cannot move at all
+        ChessGame knight = Fen.toGame("4r2k/8/8/8/8/8/4N3/4K3 w - - 0 1");
+        Assertions.assertTrue(knight.validMoves(at("e2")).isEmpty());
+        Assertions.assertFalse(knight.isInCheck(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Boards With Several Kings Use The Slow Path")
+    public void severalKings() {
+        // Two white kings: a1 is checked by the a8 rook, h1 is safe. As on the
+        // original board scan, only the first king found, on the lowest
+        // square, has to be kept out of check.
+        ChessGame game = Fen.toGame("r6k/8/8/8/8/8/8/K6K w - - 0 1");
+        Assertions.assertFalse(LegalMoves.isSupported(game.getBoard(), ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.isSquareAttacked(at("a1"), ChessGame.TeamColor.BLACK));
+        Assertions.assertTrue(game.isInCheck(ChessGame.TeamColor.WHITE));
+
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        int count = game.validMoves(ChessGame.TeamColor.WHITE, moves);
+        Assertions.assertEquals(count, game.countValidMoves(ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.hasValidMoves(ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        for (int i = 0; i < count; i++) {
+            // Moving the h1 king leaves a1 first, and in check
+            Assertions.assertEquals(Bitboards.square(at("a1")), PackedMove.from(moves[i]),
+                    PackedMove.toUci(moves[i]) + " leaves a1 in check");
+        }
+        // a1a2 stays on the rook's file, but h1 is the first king after it
+        Assertions.assertEquals(Set.of(move("a1", "a2"), move("a1", "b1"), move("a1", "b2")),
+                Set.copyOf(game.validMoves(at("a1"))));
+        Assertions.assertTrue(game.validMoves(at("h1")).isEmpty());
+
+        // A team with no king is never in check, so every move it has is valid
+        ChessGame kingless = Fen.toGame("7k/8/8/8/8/8/8/R7 w - - 0 1");
+        Assertions.assertFalse(LegalMoves.isSupported(kingless.getBoard(), ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(kingless.isInCheck(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(14, kingless.countValidMoves(ChessGame.TeamColor.WHITE));
+    }
+}
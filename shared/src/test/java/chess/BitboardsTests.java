@@ -0,0 +1,90 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class BitboardsTests {
+
+    /**
+     * Checks every bitboard against the board's squares, one square at a time
+     */
+    private static void assertInSync(ChessBoard board, String where) {
+        Bitboards bitboards = board.getBitboards();
+        long[] expected = new long[Bitboards.PIECE_KINDS];
+        long[] teams = new long[2];
+        for (int square = 0; square < 64; square++) {
+            int pieceIndex = Bitboards.pieceIndex(board.getPiece(square));
+            Assertions.assertEquals(pieceIndex, bitboards.pieceAt(square),
+                    "Wrong piece on " + square + " in " + where);
+            if (pieceIndex != Bitboards.EMPTY) {
+                expected[pieceIndex] |= 1L << square;
+                teams[Bitboards.teamOf(pieceIndex)] |= 1L << square;
+            }
+        }
+        for (int pieceIndex = 0; pieceIndex < Bitboards.PIECE_KINDS; pieceIndex++) {
+            Assertions.assertEquals(expected[pieceIndex], bitboards.pieces(pieceIndex),
+                    "Wrong bitboard for piece " + pieceIndex + " in " + where);
+        }
+        Assertions.assertEquals(teams[Bitboards.WHITE], bitboards.occupancy(Bitboards.WHITE), where);
+        Assertions.assertEquals(teams[Bitboards.BLACK], bitboards.occupancy(Bitboards.BLACK), where);
+        Assertions.assertEquals(teams[Bitboards.WHITE] | teams[Bitboards.BLACK], bitboards.occupied(), where);
+    }
+
+    @Test
+    @DisplayName("Added Pieces Update The Bitboards")
+    public void addPiece() {
+        SplittableRandom random = new SplittableRandom(3);
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        // Built now, so every change after this is made incrementally
+        board.getBitboards();
+        for (int i = 0; i < 2000; i++) {
+            int square = random.nextInt(64);
+            int pieceIndex = random.nextInt(Bitboards.PIECE_KINDS + 1) - 1;
+            board.addPiece(square, pieceIndex == Bitboards.EMPTY ? null : ChessPiece.of(pieceIndex));
+            assertInSync(board, "change " + i);
+        }
+
+        // Converting back and forth keeps every piece
+        ChessBoard converted = Bitboards.fromBoard(board).toBoard();
+        Assertions.assertEquals(board, converted);
+        assertInSync(converted, "converted board");
+    }
+
+    @Test
+    @DisplayName("Moves And Take-Backs Update The Bitboards")
+    public void applyAndUndo() {
+        SplittableRandom random = new SplittableRandom(11);
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        int captures = 0;
+        int promotions = 0;
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            for (int game = 0; game < 5; game++) {
+                ChessGame chessGame = Fen.toGame(position.fen());
+                ChessBoard board = chessGame.getBoard();
+                for (int ply = 0; ply < 60; ply++) {
+                    int count = chessGame.validMoves(chessGame.getTeamTurn(), moves);
+                    if (count == 0) {
+                        break;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        int move = moves[i];
+                        String where = Fen.fromGame(chessGame) + " " + PackedMove.toUci(move);
+                        int captured = board.applyMove(move);
+                        assertInSync(board, "after " + where);
+                        board.undoMove(move, captured);
+                        assertInSync(board, "after taking back " + where);
+                        captures += captured != Bitboards.EMPTY ? 1 : 0;
+                        promotions += PackedMove.promotion(move) >= 0 ? 1 : 0;
+                    }
+                    chessGame.makeMove(moves[random.nextInt(count)]);
+                }
+            }
+        }
+        Assertions.assertTrue(captures > 0, "No captures were played");
+        Assertions.assertTrue(promotions > 0, "No promotions were played");
+    }
+}
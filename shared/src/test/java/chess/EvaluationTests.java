@@ -0,0 +1,94 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class EvaluationTests {
+
+    /**
+     * @return the position with the board flipped top to bottom and the
+     * colors swapped, which should score the same for the side to move
+     */
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] rows = fields[0].split("/");
+        StringBuilder mirrored = new StringBuilder();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            for (char c : rows[i].toCharArray()) {
+                mirrored.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+            }
+            if (i > 0) {
+                mirrored.append('/');
+            }
+        }
+        return mirrored + (fields[1].equals("w") ? " b" : " w") + " - - 0 1";
+    }
+
+    @Test
+    @DisplayName("Starting Position Is Even")
+    public void startingPosition() {
+        Assertions.assertEquals(0, Evaluation.evaluate(new ChessGame()), "Starting position is not even");
+    }
+
+    @Test
+    @DisplayName("Mirrored Positions Score The Same")
+    public void symmetry() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            Assertions.assertEquals(Evaluation.evaluate(Fen.toGame(position.fen())),
+                    Evaluation.evaluate(Fen.toGame(mirror(position.fen()))),
+                    "Mirrored " + position.name() + " scores differently");
+        }
+    }
+
+    @Test
+    @DisplayName("Incremental Score Matches Full Scan")
+    public void incrementalMatchesScratch() {
+        SplittableRandom random = new SplittableRandom(15);
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.toGame(position.fen());
+            int startScore = Evaluation.evaluate(game);
+            int[] played = new int[40];
+            long[] undos = new long[40];
+            int plies = 0;
+            while (plies < played.length) {
+                int count = game.validMoves(game.getTeamTurn(), moves);
+                if (count == 0) {
+                    break;
+                }
+                played[plies] = moves[random.nextInt(count)];
+                undos[plies] = game.makeMove(played[plies]);
+                plies++;
+                Bitboards bitboards = game.getBoard().getBitboards();
+                Assertions.assertEquals(Evaluation.evaluateFromScratch(bitboards, game.getTeamTurn()),
+                        Evaluation.evaluate(game), "Incremental score drifted in " + position.name());
+            }
+            while (plies > 0) {
+                plies--;
+                game.unmakeMove(played[plies], undos[plies]);
+            }
+            Assertions.assertEquals(startScore, Evaluation.evaluate(game),
+                    "Score not restored after taking back moves in " + position.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Score Follows Material And Side To Move")
+    public void material() {
+        ChessGame extraQueen = Fen.toGame("4k3/8/8/8/8/8/8/3QK3 w - - 0 1");
+        Assertions.assertTrue(Evaluation.evaluate(extraQueen) > 800, "Extra queen not worth a queen");
+        extraQueen.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertTrue(Evaluation.evaluate(extraQueen) < -800, "Score not from the side to move");
+    }
+
+    @Test
+    @DisplayName("Win Probability")
+    public void winProbability() {
+        Assertions.assertEquals(0.5, Evaluation.winProbability(0), 1e-9);
+        Assertions.assertTrue(Evaluation.winProbability(400) > 0.9);
+        Assertions.assertEquals(1, Evaluation.winProbability(300) + Evaluation.winProbability(-300), 1e-9);
+    }
+}
@@ -0,0 +1,134 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class LegalMovesTests {
+
+    /**
+     * Generates every pseudo-legal move and keeps those that leave the king
+     * safe once played, the slow way the direct generator replaces
+     */
+    private static int[] filteredMoves(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor team = game.getTeamTurn();
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        int count = PieceMovesCalculator.generateMoves(board, team, moves, 0);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int captured = board.applyMove(moves[i]);
+            Bitboards bitboards = board.getBitboards();
+            int us = Bitboards.team(team);
+            if (!bitboards.isAttacked(bitboards.kingSquare(us), 1 - us)) {
+                moves[legal++] = moves[i];
+            }
+            board.undoMove(moves[i], captured);
+        }
+        int[] result = Arrays.copyOf(moves, legal);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static int[] directMoves(ChessGame game) {
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        int count = LegalMoves.generate(game.getBoard(), game.getTeamTurn(), moves);
+        int[] result = Arrays.copyOf(moves, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static void assertSameMoves(ChessGame game, String where) {
+        int[] expected = filteredMoves(game);
+        Assertions.assertArrayEquals(expected, directMoves(game), "Moves differ in " + where);
+        Assertions.assertEquals(expected.length, LegalMoves.count(game.getBoard(), game.getTeamTurn()),
+                "Count differs in " + where);
+        Assertions.assertEquals(expected.length > 0, LegalMoves.hasAny(game.getBoard(), game.getTeamTurn()),
+                "Any move differs in " + where);
+    }
+
+    @Test
+    @DisplayName("Matches Filtered Moves In Random Games")
+    public void randomGames() {
+        SplittableRandom random = new SplittableRandom(17);
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            for (int game = 0; game < 20; game++) {
+                ChessGame chessGame = Fen.toGame(position.fen());
+                for (int ply = 0; ply < 60; ply++) {
+                    String where = Fen.fromGame(chessGame);
+                    assertSameMoves(chessGame, where);
+                    int count = LegalMoves.generate(chessGame.getBoard(), chessGame.getTeamTurn(), moves);
+                    if (count == 0) {
+                        break;
+                    }
+                    chessGame.makeMove(moves[random.nextInt(count)]);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Pinned Pieces Move Only Along The Pin")
+    public void pins() {
+        // The e2 rook is pinned by the e8 rook and the d2 bishop by the a5 bishop
+        ChessGame game = Fen.toGame("4r2k/8/8/b7/8/8/3BR3/4K3 w - - 0 1");
+        assertSameMoves(game, "pins");
+        int[] moves = directMoves(game);
+        for (int move : moves) {
+            int from = PackedMove.from(move);
+            if (from == Bitboards.square(2, 5)) {
+                Assertions.assertEquals(5, Bitboards.column(PackedMove.to(move)),
+                        "Pinned rook left its file");
+            }
+            if (from == Bitboards.square(2, 4)) {
+                Assertions.assertTrue(PackedMove.to(move) == Bitboards.square(3, 3)
+                        || PackedMove.to(move) == Bitboards.square(4, 2)
+                        || PackedMove.to(move) == Bitboards.square(5, 1), "Pinned bishop left its diagonal");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Check Evasions")
+    public void checks() {
+        // Single check by a rook: capture, block or step away
+        assertSameMoves(Fen.toGame("4r2k/8/8/8/8/2N5/1B6/4K3 w - - 0 1"), "single check");
+        // Double check by a rook and a knight: only the king moves
+        ChessGame doubleCheck = Fen.toGame("4r2k/8/8/8/8/3n4/1B6/4K1R1 w - - 0 1");
+        assertSameMoves(doubleCheck, "double check");
+        for (int move : directMoves(doubleCheck)) {
+            Assertions.assertEquals(Bitboards.square(1, 5), PackedMove.from(move), "Non-king move in double check");
+        }
+        // The king cannot step back along the checking rook's line
+        ChessGame slider = Fen.toGame("7k/8/8/8/8/8/8/r3K3 w - - 0 1");
+        assertSameMoves(slider, "slider check");
+        for (int move : directMoves(slider)) {
+            Assertions.assertNotEquals(Bitboards.square(1, 6), PackedMove.to(move), "King stayed on the rook's line");
+        }
+        // Checkmate and stalemate have no moves at all
+        Assertions.assertFalse(LegalMoves.hasAny(Fen.toGame("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1").getBoard(),
+                ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(0, LegalMoves.count(Fen.toGame("k7/2Q5/1K6/8/8/8/8/8 b - - 0 1").getBoard(),
+                ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Needs Exactly One King")
+    public void supportedBoards() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        Assertions.assertTrue(LegalMoves.isSupported(board, ChessGame.TeamColor.WHITE));
+        board.addPiece(new ChessPosition(1, 5), null);
+        Assertions.assertFalse(LegalMoves.isSupported(board, ChessGame.TeamColor.WHITE));
+        // The game still finds the moves without a king, the slow way
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        Assertions.assertEquals(game.validMoves(ChessGame.TeamColor.WHITE, new int[PieceMovesCalculator.MAX_MOVES]),
+                game.countValidMoves(ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.hasValidMoves(ChessGame.TeamColor.WHITE));
+    }
+}
@@ -0,0 +1,101 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MovePickerTests {
+
+    private static final int[] NO_HISTORY = new int[4096];
+
+    private static List<Integer> pickAll(ChessGame game, int hashMove, int firstKiller, int secondKiller,
+                                         int[] history) {
+        MovePicker picker = new MovePicker();
+        picker.reset(game.getBoard(), game.getTeamTurn(), hashMove, firstKiller, secondKiller, history);
+        List<Integer> moves = new ArrayList<>();
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            moves.add(move);
+        }
+        return moves;
+    }
+
+    private static Set<Integer> generateAll(ChessGame game) {
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        int count = PieceMovesCalculator.generateMoves(game.getBoard(), game.getTeamTurn(), moves, 0);
+        Set<Integer> all = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            all.add(moves[i]);
+        }
+        return all;
+    }
+
+    private static int move(String uci, int flags) {
+        int from = (uci.charAt(0) - 'a') + (uci.charAt(1) - '1') * 8;
+        int to = (uci.charAt(2) - 'a') + (uci.charAt(3) - '1') * 8;
+        return PackedMove.encode(from, to, -1, flags);
+    }
+
+    @Test
+    @DisplayName("Picks Every Generated Move Once")
+    public void sameMovesAsGenerator() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.toGame(position.fen());
+            Set<Integer> expected = generateAll(game);
+            int someMove = expected.iterator().next();
+            List<Integer> picked = pickAll(game, someMove, someMove, PackedMove.NONE, NO_HISTORY);
+            Assertions.assertEquals(expected.size(), picked.size(), "Wrong move count for " + position.name());
+            Assertions.assertEquals(expected, new HashSet<>(picked), "Wrong moves for " + position.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Hash Move First, Then Captures By Value, Losing Captures Last")
+    public void stageOrder() {
+        // White can take the queen with the pawn or the rook, or the knight
+        // with the queen, which the black queen then wins
+        ChessGame game = Fen.toGame("4k3/8/3n4/2q5/1P6/8/3Q4/2R1K3 w - - 0 1");
+        int hashMove = move("e1f1", 0);
+        List<Integer> picked = pickAll(game, hashMove, PackedMove.NONE, PackedMove.NONE, NO_HISTORY);
+        Assertions.assertEquals(hashMove, picked.get(0), "Hash move not first");
+        Assertions.assertEquals(move("b4c5", PackedMove.FLAG_CAPTURE), picked.get(1),
+                "Pawn takes queen should be the first capture");
+        Assertions.assertEquals(move("c1c5", PackedMove.FLAG_CAPTURE), picked.get(2),
+                "Rook takes queen should be the second capture");
+        Assertions.assertFalse(PackedMove.isCapture(picked.get(3)), "Quiet moves not next");
+        Assertions.assertEquals(move("d2d6", PackedMove.FLAG_CAPTURE), picked.get(picked.size() - 1),
+                "Losing capture should come last");
+    }
+
+    @Test
+    @DisplayName("Killers Then History Order Quiet Moves")
+    public void quietOrder() {
+        ChessGame game = new ChessGame();
+        int killer = move("g1f3", 0);
+        int[] history = new int[4096];
+        history[MovePicker.historyIndex(move("d2d4", PackedMove.FLAG_DOUBLE_PUSH))] = 50;
+        history[MovePicker.historyIndex(move("c2c4", PackedMove.FLAG_DOUBLE_PUSH))] = 10;
+
+        List<Integer> picked = pickAll(game, PackedMove.NONE, killer, move("e2e5", 0), history);
+        Assertions.assertEquals(20, picked.size(), "Wrong number of moves");
+        Assertions.assertEquals(killer, picked.get(0), "Killer not first");
+        Assertions.assertEquals(move("d2d4", PackedMove.FLAG_DOUBLE_PUSH), picked.get(1),
+                "Highest history move not next");
+        Assertions.assertEquals(move("c2c4", PackedMove.FLAG_DOUBLE_PUSH), picked.get(2),
+                "Second highest history move not next");
+    }
+
+    @Test
+    @DisplayName("Skips Hash Move That Is Not A Move")
+    public void invalidHashMove() {
+        ChessGame game = new ChessGame();
+        List<Integer> picked = pickAll(game, move("e7e5", PackedMove.FLAG_DOUBLE_PUSH), PackedMove.NONE,
+                PackedMove.NONE, NO_HISTORY);
+        Assertions.assertEquals(generateAll(game), new HashSet<>(picked), "Picked a move for the wrong team");
+        Assertions.assertEquals(20, picked.size(), "Wrong number of moves");
+    }
+}
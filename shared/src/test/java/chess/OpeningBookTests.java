@@ -0,0 +1,109 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.SplittableRandom;
+
+public class OpeningBookTests {
+
+    private static OpeningBook read(String text) throws IOException {
+        return OpeningBook.read(new BufferedReader(new StringReader(text)));
+    }
+
+    private static ChessGame play(String... moves) {
+        ChessGame game = new ChessGame();
+        int[] legal = new int[PieceMovesCalculator.MAX_MOVES];
+        for (String uci : moves) {
+            int count = game.validMoves(game.getTeamTurn(), legal);
+            int played = PackedMove.NONE;
+            for (int i = 0; i < count; i++) {
+                if (PackedMove.toUci(legal[i]).equals(uci)) {
+                    played = legal[i];
+                }
+            }
+            Assertions.assertNotEquals(PackedMove.NONE, played, uci + " is not valid");
+            game.makeMove(played);
+        }
+        return game;
+    }
+
+    @Test
+    @DisplayName("Standard Book Loads")
+    public void standardBook() {
+        OpeningBook book = OpeningBook.standard();
+        Assertions.assertSame(book, OpeningBook.standard());
+        Assertions.assertTrue(book.size() > 0);
+        Assertions.assertNotEquals(PackedMove.NONE, book.bestMove(new ChessGame()));
+        Assertions.assertEquals("Sicilian Defense", book.openingName(play("e2e4", "c7c5")));
+        Assertions.assertEquals("Queen's Gambit Declined",
+                book.openingName(play("d2d4", "d7d5", "c2c4", "e7e6", "b1c3", "g8f6", "c1g5")));
+    }
+
+    @Test
+    @DisplayName("Moves Weighted By Lines")
+    public void weights() throws IOException {
+        OpeningBook book = read("""
+                # a comment
+                Open Game: e2e4 e7e5
+                Sicilian: e2e4 c7c5
+                Queen's Pawn: d2d4
+                """);
+        int[] moves = new int[4];
+        int[] weights = new int[4];
+        int count = book.bookMoves(new ChessGame(), moves, weights);
+        Assertions.assertEquals(2, count);
+        Assertions.assertEquals("e2e4", PackedMove.toUci(moves[0]));
+        Assertions.assertEquals(2, weights[0]);
+        Assertions.assertEquals("d2d4", PackedMove.toUci(moves[1]));
+        Assertions.assertEquals(1, weights[1]);
+        Assertions.assertEquals(moves[0], book.bestMove(new ChessGame()));
+
+        SplittableRandom random = new SplittableRandom(19);
+        int e4 = 0;
+        for (int i = 0; i < 300; i++) {
+            if (book.pickMove(new ChessGame(), random) == moves[0]) {
+                e4++;
+            }
+        }
+        Assertions.assertTrue(e4 > 150 && e4 < 250, "e4 picked " + e4 + " times of 300");
+    }
+
+    @Test
+    @DisplayName("Names The Most Specific Line")
+    public void names() throws IOException {
+        OpeningBook book = read("""
+                Italian Game: e2e4 e7e5 g1f3 b8c6 f1c4
+                Open Game: e2e4 e7e5
+                """);
+        Assertions.assertNull(book.openingName(new ChessGame()));
+        Assertions.assertEquals("Open Game", book.openingName(play("e2e4")));
+        Assertions.assertEquals("Open Game", book.openingName(play("e2e4", "e7e5")));
+        Assertions.assertEquals("Italian Game", book.openingName(play("e2e4", "e7e5", "g1f3")));
+        Assertions.assertEquals("Italian Game", book.openingName(play("e2e4", "e7e5", "g1f3", "b8c6", "f1c4")));
+    }
+
+    @Test
+    @DisplayName("Transpositions And Unknown Positions")
+    public void lookups() throws IOException {
+        OpeningBook book = read("English: c2c4 e7e5 g1f3");
+        // Reached by a different move order
+        ChessGame transposed = play("g1f3", "e7e5", "c2c4");
+        Assertions.assertEquals("English", book.openingName(transposed));
+        ChessGame outOfBook = play("a2a3");
+        Assertions.assertEquals(PackedMove.NONE, book.bestMove(outOfBook));
+        Assertions.assertEquals(0, book.bookMoves(outOfBook, new int[4], null));
+        Assertions.assertEquals(PackedMove.NONE, book.pickMove(outOfBook, new SplittableRandom(1)));
+    }
+
+    @Test
+    @DisplayName("Rejects Invalid Lines")
+    public void invalidLines() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> read("Bad: e2e5"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> read("e2e4 e7e5"));
+    }
+}
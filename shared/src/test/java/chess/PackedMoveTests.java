@@ -0,0 +1,71 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PackedMoveTests {
+
+    private static final int[] PROMOTIONS = {-1, ChessPiece.PieceType.QUEEN.ordinal(),
+            ChessPiece.PieceType.ROOK.ordinal(), ChessPiece.PieceType.BISHOP.ordinal(),
+            ChessPiece.PieceType.KNIGHT.ordinal()};
+    private static final int ALL_FLAGS = PackedMove.FLAG_CAPTURE | PackedMove.FLAG_DOUBLE_PUSH
+            | PackedMove.FLAG_PROMOTION;
+
+    @Test
+    @DisplayName("Packed Moves Round Trip")
+    public void roundTrip() {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                for (int promotion : PROMOTIONS) {
+                    for (int flags = 0; flags <= ALL_FLAGS; flags++) {
+                        int move = PackedMove.encode(from, to, promotion, flags);
+                        Assertions.assertEquals(from, PackedMove.from(move));
+                        Assertions.assertEquals(to, PackedMove.to(move));
+                        Assertions.assertEquals(promotion, PackedMove.promotion(move));
+                        Assertions.assertEquals(flags, PackedMove.flags(move));
+                        Assertions.assertEquals((flags & PackedMove.FLAG_CAPTURE) != 0, PackedMove.isCapture(move));
+                        Assertions.assertEquals((flags & PackedMove.FLAG_PROMOTION) != 0,
+                                PackedMove.isPromotion(move));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Packed Moves Convert To And From ChessMove")
+    public void chessMove() {
+        ChessPosition a7 = new ChessPosition(7, 1);
+        ChessPosition b8 = new ChessPosition(8, 2);
+        for (ChessPiece.PieceType type : new ChessPiece.PieceType[]{null, ChessPiece.PieceType.QUEEN,
+                ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT}) {
+            ChessMove move = new ChessMove(a7, b8, type);
+            int packed = PackedMove.fromChessMove(move);
+            Assertions.assertEquals(move, PackedMove.toChessMove(packed));
+            Assertions.assertEquals(0, PackedMove.flags(packed));
+
+            // Flags set by the generator do not make it a different move
+            int flagged = PackedMove.encode(Bitboards.square(a7), Bitboards.square(b8),
+                    type == null ? -1 : type.ordinal(), PackedMove.FLAG_CAPTURE
+                            | (type == null ? 0 : PackedMove.FLAG_PROMOTION));
+            Assertions.assertTrue(PackedMove.sameMove(packed, flagged));
+            Assertions.assertEquals(move, PackedMove.toChessMove(flagged));
+        }
+        int queen = PackedMove.fromChessMove(new ChessMove(a7, b8, ChessPiece.PieceType.QUEEN));
+        int knight = PackedMove.fromChessMove(new ChessMove(a7, b8, ChessPiece.PieceType.KNIGHT));
+        Assertions.assertFalse(PackedMove.sameMove(queen, knight));
+    }
+
+    @Test
+    @DisplayName("Packed Moves Print As UCI")
+    public void uci() {
+        Assertions.assertEquals("e2e4", PackedMove.toUci(PackedMove.encode(Bitboards.square(2, 5),
+                Bitboards.square(4, 5), -1, PackedMove.FLAG_DOUBLE_PUSH)));
+        Assertions.assertEquals("a7b8n", PackedMove.toUci(PackedMove.encode(Bitboards.square(7, 1),
+                Bitboards.square(8, 2), ChessPiece.PieceType.KNIGHT.ordinal(),
+                PackedMove.FLAG_CAPTURE | PackedMove.FLAG_PROMOTION)));
+        Assertions.assertEquals("h2h1q", PackedMove.toUci(PackedMove.encode(Bitboards.square(2, 8),
+                Bitboards.square(1, 8), ChessPiece.PieceType.QUEEN.ordinal(), PackedMove.FLAG_PROMOTION)));
+    }
+}
@@ -0,0 +1,84 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class PerftTests {
+
+    @Test
+    @DisplayName("Reference Position Counts")
+    public void referencePositions() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            Perft perft = new Perft(Fen.toGame(position.fen()));
+            for (int depth = 1; depth <= position.counts().length; depth++) {
+                Assertions.assertEquals(position.counts()[depth - 1], perft.count(depth),
+                        "Wrong perft count for " + position.name() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Divide Sums To Count")
+    public void divide() {
+        Map<String, Long> divide = new Perft(new ChessGame()).divide(3);
+        Assertions.assertEquals(20, divide.size(), "Wrong number of root moves");
+        Assertions.assertEquals(8902, divide.values().stream().mapToLong(Long::longValue).sum(),
+                "Divide counts do not add up to the perft count");
+        Assertions.assertEquals(600, divide.get("e2e4"), "Wrong count under e2e4");
+    }
+
+    @Test
+    @DisplayName("Counting Leaves Position Unchanged")
+    public void positionRestored() {
+        ChessGame game = Fen.toGame(Perft.REFERENCE_POSITIONS[1].fen());
+        ChessGame original = Fen.toGame(Perft.REFERENCE_POSITIONS[1].fen());
+        long key = game.zobristKey();
+
+        new Perft(game).count(3);
+
+        Assertions.assertEquals(original, game, "Perft did not restore the position");
+        Assertions.assertEquals(key, game.zobristKey(), "Perft did not restore the Zobrist key");
+        Assertions.assertEquals(Bitboards.fromBoard(Fen.toGame(Fen.fromGame(game)).getBoard()).zobristKey(),
+                game.zobristKey(), "Incremental Zobrist key differs from a freshly built one");
+    }
+
+    @Test
+    @DisplayName("Parallel Counts Match Sequential Counts")
+    public void parallelCounts() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelPerft parallel = new ParallelPerft(pool);
+            for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+                ChessGame game = Fen.toGame(position.fen());
+                int depth = position.counts().length;
+                Assertions.assertEquals(position.counts()[depth - 1], parallel.count(game, depth),
+                        "Wrong parallel perft count for " + position.name() + " at depth " + depth);
+            }
+            ChessGame start = new ChessGame();
+            Assertions.assertEquals(new Perft(new ChessGame()).divide(4), parallel.divide(start, 4),
+                    "Parallel divide differs from sequential divide");
+            Assertions.assertEquals(new ChessGame(), start, "Parallel perft modified the game");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Game Copies Are Independent")
+    public void gameCopy() throws InvalidMoveException {
+        ChessGame game = Fen.toGame(Perft.REFERENCE_POSITIONS[1].fen());
+        ChessGame copy = new ChessGame(game);
+        Assertions.assertEquals(game, copy, "Copy differs from the original");
+        Assertions.assertEquals(game.zobristKey(), copy.zobristKey(), "Copy has a different Zobrist key");
+
+        copy.makeMove(new ChessMove(new ChessPosition(5, 4), new ChessPosition(6, 5), null));
+        Assertions.assertNotEquals(game, copy, "Move on the copy did not change it");
+        Assertions.assertEquals(Fen.toGame(Perft.REFERENCE_POSITIONS[1].fen()), game,
+                "Move on the copy changed the original");
+        Assertions.assertEquals(46, game.getStatus().getValidMoveCount(), "Original has the wrong moves");
+    }
+}
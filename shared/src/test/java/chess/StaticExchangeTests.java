@@ -0,0 +1,57 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class StaticExchangeTests {
+
+    private static int see(String fen, String from, String to) {
+        ChessGame game = Fen.toGame(fen);
+        ChessMove move = new ChessMove(position(from), position(to), null);
+        return game.staticExchange(move);
+    }
+
+    private static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    @Test
+    @DisplayName("Undefended Capture Wins The Piece")
+    public void freePiece() {
+        Assertions.assertEquals(500, see("1k6/8/8/4r3/8/8/8/1K2R3 w - - 0 1", "e1", "e5"));
+    }
+
+    @Test
+    @DisplayName("Defended Capture With A Bigger Piece Loses")
+    public void defendedPawn() {
+        // Queen takes a pawn defended by a pawn
+        Assertions.assertEquals(100 - 900, see("1k6/8/3p4/4p3/8/8/8/1K2Q3 w - - 0 1", "e1", "e5"));
+    }
+
+    @Test
+    @DisplayName("Exchange Sequence With X-Ray Attackers")
+    public void xRay() {
+        // Rook takes a pawn defended once; the rook doubled behind it recaptures
+        Assertions.assertEquals(100, see("1k2r3/8/8/4p3/8/8/4R3/1K2R3 w - - 0 1", "e2", "e5"));
+        // Knight takes a pawn defended by a pawn and a rook behind it: N for P
+        Assertions.assertEquals(100 - 320, see("1k2r3/3p4/4p3/8/3N4/8/8/1K6 w - - 0 1", "d4", "e6"));
+    }
+
+    @Test
+    @DisplayName("Quiet Move Onto Attacked Square")
+    public void hangingMove() {
+        // Moving the queen where a pawn can take it
+        Assertions.assertEquals(-900, see("1k6/8/8/3p4/8/8/8/1K2Q3 w - - 0 1", "e1", "e4"));
+        Assertions.assertEquals(0, see("1k6/8/8/3p4/8/8/8/1K2Q3 w - - 0 1", "e1", "e2"));
+    }
+
+    @Test
+    @DisplayName("King Never Captures Into A Defended Square")
+    public void kingRecapture() {
+        // Rook takes a pawn next to the black king; the king cannot recapture since the bishop defends
+        Assertions.assertEquals(100, see("8/8/8/8/2B5/5k2/4p3/1K2R3 w - - 0 1", "e1", "e2"));
+        // Without the bishop the king wins the rook
+        Assertions.assertEquals(100 - 500, see("8/8/8/8/8/5k2/4p3/1K2R3 w - - 0 1", "e1", "e2"));
+    }
+}
@@ -0,0 +1,129 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class StatusCacheTests {
+
+    private static final String STALEMATE = "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1";
+
+    private static ChessPosition at(String square) {
+        return new ChessPosition(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+
+    private static int packed(ChessGame game, String uci) {
+        int[] legal = new int[PieceMovesCalculator.MAX_MOVES];
+        int count = game.validMoves(game.getTeamTurn(), legal);
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.toUci(legal[i]).equals(uci)) {
+                return legal[i];
+            }
+        }
+        throw new AssertionError(uci + " is not valid");
+    }
+
+    /**
+     * Plays the fool's mate up to, but not including, the mating move
+     */
+    private static ChessGame beforeMate() {
+        ChessGame game = new ChessGame();
+        for (String uci : new String[]{"f2f3", "e7e5", "g2g4"}) {
+            game.makeMove(packed(game, uci));
+        }
+        return game;
+    }
+
+    @Test
+    @DisplayName("Make And Unmake Recompute Checkmate")
+    public void makeAndUnmake() {
+        ChessGame game = beforeMate();
+        Assertions.assertFalse(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+
+        int mate = packed(game, "d8h4");
+        long undo = game.makeMove(mate);
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        Assertions.assertTrue(game.getStatus().isInCheck());
+
+        game.unmakeMove(mate, undo);
+        Assertions.assertFalse(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isInCheck(ChessGame.TeamColor.WHITE));
+
+        // Playing it again after the take-back is mate again
+        game.makeMove(mate);
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Adding Pieces Directly Recomputes Checkmate")
+    public void addPiece() {
+        ChessGame game = beforeMate();
+        game.makeMove(packed(game, "d8h4"));
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+
+        // A knight on g3 blocks the check
+        ChessBoard board = game.getBoard();
+        board.addPiece(at("g3"), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        Assertions.assertFalse(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isInCheck(ChessGame.TeamColor.WHITE));
+
+        board.addPiece(at("g3"), null);
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    @DisplayName("Restored Versions Recompute Stalemate")
+    public void restoreVersion() {
+        ChessGame game = Fen.toGame(STALEMATE);
+        ChessBoard board = game.getBoard();
+        long stalemated = board.getVersion();
+        Assertions.assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        // Moving the queen off f7 frees g8, and gets a version never used before
+        board.addPiece(at("f7"), null);
+        board.addPiece(at("f6"), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        long freed = board.getVersion();
+        Assertions.assertNotEquals(stalemated, freed);
+        Assertions.assertFalse(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        // Putting it back and restoring the old version reuses the old status
+        board.addPiece(at("f6"), null);
+        board.addPiece(at("f7"), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        board.restoreVersion(stalemated);
+        Assertions.assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        // A version handed out after a restore is still new
+        board.addPiece(at("f7"), null);
+        Assertions.assertNotEquals(freed, board.getVersion());
+        Assertions.assertFalse(game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Setting A Board Recomputes Stalemate")
+    public void setBoard() {
+        ChessGame game = new ChessGame();
+        ChessBoard start = game.getBoard();
+        Assertions.assertFalse(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        ChessBoard stalemate = Fen.toGame(STALEMATE).getBoard();
+        game.setBoard(stalemate);
+        // Stalemate needs it to be Black's turn, so the turn is part of the key too
+        Assertions.assertFalse(game.isInStalemate(ChessGame.TeamColor.BLACK));
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        // A different board whose version matches the cached one's is not mistaken for it
+        ChessBoard fresh = new ChessBoard();
+        fresh.resetBoard();
+        while (fresh.getVersion() < stalemate.getVersion()) {
+            fresh.nextVersion();
+        }
+        fresh.restoreVersion(stalemate.getVersion());
+        game.setBoard(fresh);
+        Assertions.assertFalse(game.isInStalemate(ChessGame.TeamColor.BLACK));
+
+        game.setBoard(start);
+        Assertions.assertFalse(game.isInStalemate(ChessGame.TeamColor.BLACK));
+        Assertions.assertEquals(20, game.getStatus(ChessGame.TeamColor.WHITE).getValidMoveCount());
+    }
+}
@@ -0,0 +1,100 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+public class ZobristTests {
+
+    /**
+     * Computes a board's key from its squares alone, ignoring the key kept
+     * up to date as moves are played
+     */
+    private static long keyFromScratch(ChessBoard board) {
+        long key = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                key ^= Zobrist.piece(Bitboards.pieceIndex(piece), square);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Copies a board square by square, so its bitboards and key are built
+     * fresh instead of copied
+     */
+    private static ChessBoard rebuilt(ChessBoard board) {
+        ChessBoard copy = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            copy.addPiece(square, board.getPiece(square));
+        }
+        return copy;
+    }
+
+    private static void assertKeyMatches(ChessGame game, String where) {
+        ChessBoard board = game.getBoard();
+        ChessBoard fresh = rebuilt(board);
+        Assertions.assertEquals(keyFromScratch(board), board.zobristKey(), "Key drifted in " + where);
+        Assertions.assertEquals(fresh.zobristKey(), board.zobristKey(), "Rebuilt key differs in " + where);
+        Assertions.assertEquals(fresh, board, "Equal boards compare unequal in " + where);
+        Assertions.assertEquals(fresh.hashCode(), board.hashCode(), "Hash codes differ in " + where);
+    }
+
+    @Test
+    @DisplayName("Incremental Key Matches A Fresh One")
+    public void makeAndUnmake() {
+        SplittableRandom random = new SplittableRandom(7);
+        int[] moves = new int[PieceMovesCalculator.MAX_MOVES];
+        int captures = 0;
+        int promotions = 0;
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            for (int game = 0; game < 10; game++) {
+                ChessGame chessGame = Fen.toGame(position.fen());
+                for (int ply = 0; ply < 80; ply++) {
+                    int count = chessGame.validMoves(chessGame.getTeamTurn(), moves);
+                    if (count == 0) {
+                        break;
+                    }
+                    // Try every move and take it back, then play one for real
+                    long before = chessGame.getBoard().zobristKey();
+                    for (int i = 0; i < count; i++) {
+                        int move = moves[i];
+                        long undo = chessGame.makeMove(move);
+                        String where = Fen.fromGame(chessGame) + " after " + PackedMove.toUci(move);
+                        assertKeyMatches(chessGame, where);
+                        captures += PackedMove.isCapture(move) ? 1 : 0;
+                        promotions += PackedMove.promotion(move) >= 0 ? 1 : 0;
+                        chessGame.unmakeMove(move, undo);
+                        Assertions.assertEquals(before, chessGame.getBoard().zobristKey(),
+                                "Key not restored after taking back " + PackedMove.toUci(move));
+                    }
+                    chessGame.makeMove(moves[random.nextInt(count)]);
+                }
+            }
+        }
+        Assertions.assertTrue(captures > 0, "No captures were played");
+        Assertions.assertTrue(promotions > 0, "No promotions were played");
+    }
+
+    @Test
+    @DisplayName("Added And Removed Pieces Keep The Key")
+    public void addPiece() {
+        ChessGame game = new ChessGame();
+        ChessBoard board = game.getBoard();
+        // Replacing a piece and emptying a square both go through addPiece
+        board.addPiece(new ChessPosition(1, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        board.addPiece(new ChessPosition(7, 5), null);
+        board.addPiece(new ChessPosition(5, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        assertKeyMatches(game, "edited start position");
+
+        ChessBoard copy = new ChessBoard(board);
+        Assertions.assertEquals(board.zobristKey(), copy.zobristKey());
+        copy.addPiece(new ChessPosition(5, 5), null);
+        Assertions.assertNotEquals(board, copy);
+        Assertions.assertEquals(keyFromScratch(copy), copy.zobristKey());
+    }
+}
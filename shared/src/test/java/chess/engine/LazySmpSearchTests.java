@@ -0,0 +1,52 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class LazySmpSearchTests {
+
+    private static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    @DisplayName("Finds Mate With Several Threads")
+    public void mateInOne() {
+        try (LazySmpSearch search = new LazySmpSearch(4, new TranspositionTable(4))) {
+            SearchResult result = search.search(Fen.toGame("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1"),
+                    SearchLimits.time(500));
+            Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                    result.getBestMove(), "Did not find the back rank mate");
+            Assertions.assertEquals(1, result.mateIn(), "Wrong distance to mate");
+        }
+    }
+
+    @Test
+    @DisplayName("Stops At Time Budget And Counts Every Thread")
+    public void timeBudget() {
+        ChessGame game = Fen.toGame(MIDDLEGAME);
+        try (LazySmpSearch search = new LazySmpSearch(3, new TranspositionTable(4))) {
+            SearchResult result = search.search(game, SearchLimits.time(300));
+            Assertions.assertNotNull(result.getBestMove(), "No move returned");
+            Assertions.assertTrue(result.depth() >= 1, "No iteration finished");
+            Assertions.assertTrue(result.nanos() < 2_000_000_000L, "Searched for " + result.nanos() + " ns");
+            Assertions.assertEquals(result.getBestMove(), result.getPrincipalVariation().get(0),
+                    "Principal variation does not start with the best move");
+        }
+        Assertions.assertEquals(Fen.toGame(MIDDLEGAME), game, "Search modified the game");
+    }
+
+    @Test
+    @DisplayName("Reusable For Several Searches")
+    public void reuse() {
+        try (LazySmpSearch search = new LazySmpSearch(2, new TranspositionTable(4))) {
+            for (int i = 0; i < 3; i++) {
+                SearchResult result = search.search(Fen.toGame(MIDDLEGAME), SearchLimits.depth(4));
+                Assertions.assertTrue(result.depth() >= 4, "Search " + i + " stopped at depth " + result.depth());
+            }
+        }
+    }
+}
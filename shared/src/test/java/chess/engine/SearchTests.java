@@ -0,0 +1,124 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SearchTests {
+
+    private static final String MIDDLEGAME = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    @DisplayName("Finds Mate In One")
+    public void mateInOne() {
+        SearchResult result = new Search().search(Fen.toGame("6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1"),
+                SearchLimits.depth(4));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                result.getBestMove(), "Did not find the back rank mate");
+        Assertions.assertTrue(result.isMate(), "Mate not scored as a mate");
+        Assertions.assertEquals(1, result.mateIn(), "Wrong distance to mate");
+    }
+
+    @Test
+    @DisplayName("Wins Hanging Queen")
+    public void hangingQueen() {
+        SearchResult result = new Search().search(Fen.toGame("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"),
+                SearchLimits.depth(3));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null),
+                result.getBestMove(), "Did not capture the queen");
+        Assertions.assertTrue(result.score() > 300, "Score does not reflect winning the queen");
+    }
+
+    @Test
+    @DisplayName("Quiescence Sees The Recapture")
+    public void quiescence() {
+        // At depth 1 taking the pawn looks like it wins a pawn until the
+        // recapture is played out
+        SearchResult result = new Search().search(Fen.toGame("1k6/8/3p4/4p3/8/8/8/1K2Q3 w - - 0 1"),
+                SearchLimits.depth(1));
+        Assertions.assertNotEquals(new ChessMove(new ChessPosition(1, 5), new ChessPosition(5, 5), null),
+                result.getBestMove(), "Took a defended pawn with the queen");
+    }
+
+    @Test
+    @DisplayName("No Moves Gives No Best Move")
+    public void noMoves() {
+        SearchResult result = new Search().search(Fen.toGame("k7/8/1Q6/8/8/8/8/4K3 b - - 0 1"),
+                SearchLimits.depth(3));
+        Assertions.assertNull(result.getBestMove(), "Returned a move from a stalemate");
+        Assertions.assertEquals(Search.DRAW, result.score(), "Stalemate is not scored as a draw");
+    }
+
+    @Test
+    @DisplayName("Principal Variation Is Playable")
+    public void principalVariation() throws InvalidMoveException {
+        ChessGame game = Fen.toGame(MIDDLEGAME);
+        SearchResult result = new Search().search(game, SearchLimits.depth(4));
+        Assertions.assertEquals(4, result.depth(), "Did not finish the requested depth");
+        Assertions.assertEquals(result.getBestMove(), result.getPrincipalVariation().get(0),
+                "Principal variation does not start with the best move");
+        Assertions.assertEquals(Fen.toGame(MIDDLEGAME), game, "Search modified the game");
+        for (ChessMove move : result.getPrincipalVariation()) {
+            game.makeMove(move);
+        }
+    }
+
+    @Test
+    @DisplayName("Stops At Node Budget")
+    public void nodeBudget() {
+        SearchResult result = new Search().search(Fen.toGame(MIDDLEGAME), SearchLimits.nodes(20_000));
+        Assertions.assertNotNull(result.getBestMove(), "No move returned");
+        Assertions.assertTrue(result.nodes() <= 20_000, "Searched " + result.nodes() + " nodes");
+    }
+
+    @Test
+    @DisplayName("Stops At Time Budget")
+    public void timeBudget() {
+        SearchResult result = new Search().search(Fen.toGame(MIDDLEGAME), SearchLimits.time(200));
+        Assertions.assertNotNull(result.getBestMove(), "No move returned");
+        Assertions.assertTrue(result.nanos() < 1_000_000_000L, "Searched for " + result.nanos() + " ns");
+    }
+
+    @Test
+    @DisplayName("A Stop Signal Stops Only Its Own Search")
+    public void ownStopSignal() {
+        Search search = new Search();
+        ChessGame game = Fen.toGame(MIDDLEGAME);
+        AtomicBoolean first = new AtomicBoolean();
+        search.search(game, SearchLimits.time(50), first, null);
+
+        // Setting the finished search's signal while the same Search runs again
+        SearchResult second = search.search(game, SearchLimits.time(200), new AtomicBoolean(),
+                result -> first.set(true));
+        Assertions.assertTrue(second.nanos() >= 200_000_000L, "Stopped after " + second.nanos() + " ns");
+
+        AtomicBoolean third = new AtomicBoolean();
+        SearchResult stopped = search.search(game, SearchLimits.time(5000), third, result -> third.set(true));
+        Assertions.assertTrue(stopped.nanos() < 1_000_000_000L, "Searched for " + stopped.nanos() + " ns");
+        Assertions.assertNotNull(stopped.getBestMove());
+    }
+
+    @Test
+    @DisplayName("Search Does Not Allocate Per Node")
+    public void noPerNodeAllocation() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Search search = new Search();
+        ChessGame game = Fen.toGame(MIDDLEGAME);
+        search.search(game, SearchLimits.depth(3));
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        SearchResult result = search.search(game, SearchLimits.depth(5));
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        Assertions.assertTrue(result.nodes() > 10_000, "Search too small to measure");
+        Assertions.assertTrue(allocated < 64 * 1024,
+                "Allocated " + allocated + " bytes for " + result.nodes() + " nodes");
+    }
+}
@@ -0,0 +1,69 @@
+package chess.engine;
+
+import chess.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TablebaseTests {
+
+    @TempDir
+    static Path directory;
+    private static Tablebase tablebase;
+    private static TablebaseGenerator.Result result;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        result = TablebaseGenerator.generate(directory, "KQvK");
+        tablebase = new Tablebase(directory);
+    }
+
+    private static Tablebase.Outcome probe(String fen) {
+        return tablebase.probe(Fen.toGame(fen));
+    }
+
+    @Test
+    @DisplayName("Generates Smaller Tables First")
+    public void files() {
+        Assertions.assertTrue(Files.exists(directory.resolve("KQvK.ctb")));
+        Assertions.assertTrue(Files.exists(directory.resolve("KvK.ctb")), "Capturing the queen needs KvK");
+        Assertions.assertTrue(tablebase.covers("KQvK"));
+        Assertions.assertTrue(tablebase.covers("KvKQ"));
+        Assertions.assertFalse(tablebase.covers("KRvK"));
+        Assertions.assertTrue(result.wins() > 0 && result.draws() > 0 && result.losses() > 0);
+    }
+
+    @Test
+    @DisplayName("Exact Outcomes")
+    public void outcomes() {
+        Assertions.assertEquals(Tablebase.Outcome.WIN, probe("4k3/8/8/8/8/8/8/3QK3 w - - 0 1"));
+        Assertions.assertEquals(Tablebase.Outcome.LOSS, probe("4k3/8/8/8/8/8/8/3QK3 b - - 0 1"));
+        // Checkmate
+        Assertions.assertEquals(Tablebase.Outcome.LOSS, probe("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1"));
+        // Stalemate
+        Assertions.assertEquals(Tablebase.Outcome.DRAW, probe("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"));
+        // Black takes the undefended queen
+        Assertions.assertEquals(Tablebase.Outcome.DRAW, probe("8/8/8/8/8/8/3kQ3/7K b - - 0 1"));
+    }
+
+    @Test
+    @DisplayName("Colours Swapped Use The Same Table")
+    public void flipped() {
+        Assertions.assertEquals(Tablebase.Outcome.WIN, probe("3qk3/8/8/8/8/8/8/4K3 b - - 0 1"));
+        Assertions.assertEquals(Tablebase.Outcome.LOSS, probe("8/8/8/8/8/6k1/6q1/7K w - - 0 1"));
+        Assertions.assertEquals(Tablebase.Outcome.DRAW, probe("7k/3Kq3/8/8/8/8/8/8 w - - 0 1"));
+    }
+
+    @Test
+    @DisplayName("Positions Without A Table")
+    public void uncovered() {
+        Assertions.assertNull(probe(Fen.START_POSITION));
+        Assertions.assertNull(probe("4k3/8/8/8/8/8/8/3RK3 w - - 0 1"));
+    }
+}
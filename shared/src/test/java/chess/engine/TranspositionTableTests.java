@@ -0,0 +1,99 @@
+package chess.engine;
+
+import chess.Fen;
+import chess.PackedMove;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TranspositionTableTests {
+
+    @Test
+    @DisplayName("Stores And Probes Entries")
+    public void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.encode(12, 28, -1, PackedMove.FLAG_DOUBLE_PUSH);
+        table.store(0x1234_5678_9ABC_DEF0L, move, -31990, 7, TranspositionTable.BOUND_LOWER);
+
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        Assertions.assertNotEquals(TranspositionTable.MISS, entry, "Stored entry not found");
+        Assertions.assertEquals(move, TranspositionTable.move(entry), "Wrong move");
+        Assertions.assertEquals(-31990, TranspositionTable.score(entry), "Wrong score");
+        Assertions.assertEquals(7, TranspositionTable.depth(entry), "Wrong depth");
+        Assertions.assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.bound(entry), "Wrong bound");
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(0x1234_5678_9ABC_DEF1L),
+                "Found an entry for a key never stored");
+    }
+
+    @Test
+    @DisplayName("Replaces Shallow And Old Entries First")
+    public void replacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        long bucket = 1L << 40;
+        for (int depth = 1; depth <= 4; depth++) {
+            table.store(depth * bucket, PackedMove.NONE, depth, depth * 2, TranspositionTable.BOUND_EXACT);
+        }
+        table.store(5 * bucket, PackedMove.NONE, 5, 1, TranspositionTable.BOUND_EXACT);
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(bucket), "Shallowest entry was kept");
+        Assertions.assertNotEquals(TranspositionTable.MISS, table.probe(4 * bucket), "Deepest entry was replaced");
+
+        table.newSearch();
+        table.store(6 * bucket, PackedMove.NONE, 6, 1, TranspositionTable.BOUND_EXACT);
+        table.store(7 * bucket, PackedMove.NONE, 7, 1, TranspositionTable.BOUND_EXACT);
+        Assertions.assertNotEquals(TranspositionTable.MISS, table.probe(6 * bucket),
+                "Entry from the current search lost to an older, deeper one");
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(2 * bucket),
+                "Older entry was kept over the current search's");
+    }
+
+    @Test
+    @DisplayName("Size Stays Within Limit")
+    public void size() {
+        Assertions.assertEquals(1 << 20, new TranspositionTable(1).sizeBytes(), "Wrong size for 1 MB");
+        Assertions.assertEquals(1 << 21, new TranspositionTable(3).sizeBytes(), "Size not rounded down");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TranspositionTable(0));
+    }
+
+    @Test
+    @DisplayName("Concurrent Writers Never Produce Wrong Entries")
+    public void concurrentAccess() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicBoolean corrupted = new AtomicBoolean();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    // A small key space so threads keep overwriting each other's buckets
+                    long key = random.nextLong(4096) * 0x9E37_79B9_7F4A_7C15L;
+                    long entry = table.probe(key);
+                    if (entry != TranspositionTable.MISS && TranspositionTable.score(entry) != (short) key) {
+                        corrupted.set(true);
+                    }
+                    table.store(key, PackedMove.NONE, (short) key, (int) (key >>> 60), TranspositionTable.BOUND_EXACT);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertFalse(corrupted.get(), "Read another key's entry");
+    }
+
+    @Test
+    @DisplayName("Table Saves Work On Repeated Search")
+    public void repeatedSearch() {
+        Search search = new Search(new TranspositionTable(4));
+        String fen = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+        SearchResult first = search.search(Fen.toGame(fen), SearchLimits.depth(5));
+        SearchResult second = search.search(Fen.toGame(fen), SearchLimits.depth(5));
+        Assertions.assertEquals(first.bestMove(), second.bestMove(), "Repeated search changed its move");
+        Assertions.assertTrue(second.nodes() * 2 < first.nodes(),
+                "Repeated search visited " + second.nodes() + " nodes, first visited " + first.nodes());
+    }
+}